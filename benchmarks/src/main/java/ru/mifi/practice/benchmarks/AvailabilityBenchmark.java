@@ -0,0 +1,69 @@
+package ru.mifi.practice.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.server.ResponseStatusException;
+import ru.mifi.practice.hotel.HotelServiceApplication;
+import ru.mifi.practice.hotel.dto.AvailabilityRequest;
+import ru.mifi.practice.hotel.dto.AvailabilityResponse;
+import ru.mifi.practice.hotel.service.AvailabilityService;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Full hold path through the Spring context: JPA lookups, index check, insert into in-memory H2.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AvailabilityBenchmark {
+
+    private final AtomicLong sequence = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private AvailabilityService availabilityService;
+    private LocalDate start;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = SpringApplication.run(HotelServiceApplication.class,
+                "--server.port=0",
+                "--eureka.client.enabled=false",
+                "--spring.datasource.url=jdbc:h2:mem:hotel-benchmark;DB_CLOSE_DELAY=-1;MODE=LEGACY",
+                "--logging.level.root=WARN",
+                "--logging.level.ru.mifi.practice=ERROR");
+        availabilityService = context.getBean(AvailabilityService.class);
+        start = LocalDate.now().plusDays(100);
+        availabilityService.confirmAvailability(1L, new AvailabilityRequest(start, start.plusDays(2), "bench-blocker"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public AvailabilityResponse holdAndRelease() {
+        String requestId = "bench-" + sequence.incrementAndGet();
+        availabilityService.confirmAvailability(2L, new AvailabilityRequest(start, start.plusDays(2), requestId));
+        return availabilityService.release(requestId);
+    }
+
+    @Benchmark
+    public Object rejectOverlap() {
+        try {
+            return availabilityService.confirmAvailability(1L,
+                    new AvailabilityRequest(start.plusDays(1), start.plusDays(3), "bench-" + sequence.incrementAndGet()));
+        } catch (ResponseStatusException ex) {
+            return ex;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package ru.mifi.practice.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationProvider;
+import ru.mifi.practice.booking.model.Role;
+import ru.mifi.practice.booking.model.User;
+import ru.mifi.practice.booking.security.CachingJwtAuthenticationManager;
+import ru.mifi.practice.booking.security.InternalIdentity;
+import ru.mifi.practice.booking.security.JwtTokenService;
+import ru.mifi.practice.booking.security.SecurityConfig;
+import ru.mifi.practice.hotel.security.JwtRoleConverter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JwtBenchmark {
+
+    private static final String SECRET = "YnJvb2tpbmctc2VydmljZS1zZWNyZXQtZGV2LXNlZWQ=";
+
+    private final JwtTokenService tokenService = new JwtTokenService(SECRET, 3600);
+    private final JwtRoleConverter roleConverter = new JwtRoleConverter();
+    private User user;
+    private Jwt jwt;
+    private JwtAuthenticationProvider uncached;
+    private CachingJwtAuthenticationManager cached;
+    private BearerTokenAuthenticationToken bearer;
+    private final InternalIdentity internalIdentity = new InternalIdentity("internal-identity-benchmark-secret", Duration.ofSeconds(60));
+    private String identity;
+
+    @Setup
+    public void setUp() {
+        user = User.builder().id(1L).username("bench").password("x").role(Role.USER).build();
+        jwt = Jwt.withTokenValue("token")
+                .header("alg", "HS256")
+                .subject("bench")
+                .claim("roles", List.of("USER"))
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .build();
+        SecurityConfig securityConfig = new SecurityConfig();
+        JwtDecoder decoder = securityConfig.jwtDecoder(SECRET);
+        JwtAuthenticationConverter converter = securityConfig.jwtAuthenticationConverter();
+        uncached = new JwtAuthenticationProvider(decoder);
+        uncached.setJwtAuthenticationConverter(converter);
+        cached = new CachingJwtAuthenticationManager(decoder, converter, new SimpleMeterRegistry(), 10_000);
+        bearer = new BearerTokenAuthenticationToken(tokenService.generate(user));
+        identity = internalIdentity.sign("bench", 1L, List.of("USER"), Instant.now().plusSeconds(3600));
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return tokenService.generate(user);
+    }
+
+    @Benchmark
+    public Collection<GrantedAuthority> convertRoles() {
+        return roleConverter.convert(jwt);
+    }
+
+    @Benchmark
+    public Authentication decodeUncached() {
+        return uncached.authenticate(bearer);
+    }
+
+    @Benchmark
+    public Authentication decodeCached() {
+        return cached.authenticate(bearer);
+    }
+
+    @Benchmark
+    public Optional<Jwt> verifyInternalIdentity() {
+        return internalIdentity.verify(identity);
+    }
+}
@@ -0,0 +1,85 @@
+package ru.mifi.practice.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.mifi.practice.booking.dto.BookingResponse;
+import ru.mifi.practice.booking.mapper.BookingMapper;
+import ru.mifi.practice.booking.mapper.BookingMapperImpl;
+import ru.mifi.practice.booking.model.Booking;
+import ru.mifi.practice.booking.model.BookingStatus;
+import ru.mifi.practice.hotel.dto.HotelResponse;
+import ru.mifi.practice.hotel.dto.RoomResponse;
+import ru.mifi.practice.hotel.mapper.HotelMapper;
+import ru.mifi.practice.hotel.mapper.RoomMapper;
+import ru.mifi.practice.hotel.model.Hotel;
+import ru.mifi.practice.hotel.model.Room;
+import ru.mifi.practice.hotel.service.BookingCounter;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MapperBenchmark {
+
+    private HotelMapper hotelMapper;
+    private RoomMapper roomMapper;
+    private final BookingMapper bookingMapper = new BookingMapperImpl();
+    private Hotel hotel;
+    private Room room;
+    private Booking booking;
+
+    @Setup
+    public void setUp() {
+        // never flushed here, so it needs no transactions or catalog version
+        BookingCounter counter = new BookingCounter(new JdbcTemplate(), null, null);
+        hotelMapper = new HotelMapper(counter);
+        roomMapper = new RoomMapper(counter);
+        hotel = Hotel.builder().id(1L).name("Demo Hotel").address("123 Demo Street").rooms(new ArrayList<>()).build();
+        for (long i = 1; i <= 20; i++) {
+            Room r = Room.builder().id(i).hotel(hotel).number("1" + i).available(true).timesBooked((int) i).build();
+            hotel.getRooms().add(r);
+            counter.add(i, 1);
+        }
+        room = hotel.getRooms().get(0);
+        booking = Booking.builder()
+                .id(1L)
+                .roomId(1L)
+                .startDate(LocalDate.now())
+                .endDate(LocalDate.now().plusDays(2))
+                .status(BookingStatus.CONFIRMED)
+                .createdAt(Instant.now())
+                .requestId("bench")
+                .build();
+    }
+
+    @Benchmark
+    public HotelResponse hotelWithTwentyRooms() {
+        return hotelMapper.toResponse(hotel);
+    }
+
+    @Benchmark
+    public RoomResponse room() {
+        return roomMapper.toResponse(room);
+    }
+
+    @Benchmark
+    public BookingResponse booking() {
+        return bookingMapper.toResponse(booking);
+    }
+
+    @Benchmark
+    public List<RoomResponse> roomsTwenty() {
+        return hotel.getRooms().stream().map(roomMapper::toResponse).toList();
+    }
+}
@@ -0,0 +1,69 @@
+package ru.mifi.practice.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.mifi.practice.hotel.dto.ReservationSlot;
+import ru.mifi.practice.hotel.service.ReservationIndex;
+import ru.mifi.practice.hotel.service.RoomOccupancyCalendar;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OverlapBenchmark {
+
+    private static final int PROBES = 1024;
+
+    @Param({"1000"})
+    public int rooms;
+
+    @Param({"10", "100"})
+    public int reservationsPerRoom;
+
+    private final ReservationIndex index = new ReservationIndex();
+    private final RoomOccupancyCalendar calendar = new RoomOccupancyCalendar(index, 730);
+    private final LocalDate[] probes = new LocalDate[PROBES];
+    private final long[] probeRooms = new long[PROBES];
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        LocalDate today = LocalDate.now();
+        SplittableRandom random = new SplittableRandom(42);
+        for (long roomId = 1; roomId <= rooms; roomId++) {
+            calendar.registerRoom(roomId, roomId % 10, true);
+            for (int i = 0; i < reservationsPerRoom; i++) {
+                LocalDate start = today.plusDays(i * 7L);
+                ReservationSlot slot = new ReservationSlot(roomId, roomId + "-" + i, start, start.plusDays(2));
+                index.add(slot);
+                calendar.occupy(slot);
+            }
+        }
+        for (int i = 0; i < PROBES; i++) {
+            probes[i] = today.plusDays(random.nextInt(Math.max(1, reservationsPerRoom * 7)));
+            probeRooms[i] = 1 + random.nextInt(rooms);
+        }
+    }
+
+    @Benchmark
+    public boolean indexOverlaps() {
+        int i = cursor++ & (PROBES - 1);
+        return index.overlaps(probeRooms[i], probes[i], probes[i].plusDays(3));
+    }
+
+    @Benchmark
+    public List<Long> calendarFindFreeWeek() {
+        int i = cursor++ & (PROBES - 1);
+        return calendar.findFree(probes[i], probes[i].plusDays(7), null, 0L, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,133 @@
+package ru.mifi.practice.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import ru.mifi.practice.hotel.HotelServiceApplication;
+import ru.mifi.practice.hotel.dto.AvailabilityRequest;
+import ru.mifi.practice.hotel.service.AvailabilityService;
+
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+// Bursts of requests executed the way Tomcat runs them: on its default pool of 200 platform threads
+// or on one virtual thread per request. Only platform runs by default; the virtual mode needs a Java 21
+// runtime and is selected with -p mode=virtual (or mode=platform,virtual).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ThreadingBenchmark {
+
+    private static final int TOMCAT_MAX_THREADS = 200;
+    // rooms 1..3 from hotel-service data.sql
+    private static final int ROOMS = 3;
+
+    @Param({"platform"})
+    public String mode;
+
+    @Param({"1000"})
+    public int requests;
+
+    @Param({"20"})
+    public int blockingMillis;
+
+    @Param({"200"})
+    public int holds;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private AsyncTaskExecutor executor;
+    private ConfigurableApplicationContext context;
+    private AvailabilityService availabilityService;
+    private LocalDate start;
+
+    @Setup
+    public void setUp() {
+        if ("virtual".equals(mode)) {
+            if (Runtime.version().feature() < 21) {
+                throw new IllegalStateException("Virtual threads need Java 21, running on " + Runtime.version());
+            }
+            SimpleAsyncTaskExecutor virtual = new SimpleAsyncTaskExecutor("bench-virtual-");
+            virtual.setVirtualThreads(true);
+            executor = virtual;
+        } else {
+            ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+            pool.setCorePoolSize(TOMCAT_MAX_THREADS);
+            pool.setMaxPoolSize(TOMCAT_MAX_THREADS);
+            pool.setThreadNamePrefix("bench-platform-");
+            pool.initialize();
+            pool.getThreadPoolExecutor().prestartAllCoreThreads();
+            executor = pool;
+        }
+        context = SpringApplication.run(HotelServiceApplication.class,
+                "--server.port=0",
+                "--eureka.client.enabled=false",
+                "--spring.datasource.url=jdbc:h2:mem:hotel-threading;DB_CLOSE_DELAY=-1;MODE=LEGACY",
+                "--logging.level.root=WARN",
+                "--logging.level.ru.mifi.practice=ERROR");
+        availabilityService = context.getBean(AvailabilityService.class);
+        start = LocalDate.now().plusDays(10);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            pool.shutdown();
+        } else if (executor instanceof SimpleAsyncTaskExecutor simple) {
+            simple.close();
+        }
+    }
+
+    // Each request only waits, as for a remote call.
+    @Benchmark
+    public void burstOfBlockingRequests() throws InterruptedException {
+        burst(requests, i -> {
+            try {
+                Thread.sleep(blockingMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    // Each request holds and releases a room through AvailabilityService: transactions, JDBC round trips
+    // on the Hikari pool and the per-room locks, with disjoint dates so no request is rejected.
+    @Benchmark
+    public void burstOfHolds() throws InterruptedException {
+        burst(holds, i -> {
+            String requestId = "bench-" + sequence.incrementAndGet();
+            LocalDate from = start.plusDays(i / ROOMS * 2L);
+            availabilityService.confirmAvailability(1L + i % ROOMS, new AvailabilityRequest(from, from, requestId));
+            availabilityService.release(requestId);
+        });
+    }
+
+    private void burst(int count, IntConsumer request) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            executor.execute(() -> {
+                try {
+                    request.accept(index);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+}
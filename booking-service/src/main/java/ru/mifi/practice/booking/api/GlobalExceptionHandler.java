@@ -4,6 +4,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -21,7 +22,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(ResponseStatusException.class)
     public ResponseEntity<ErrorResponse> handleRse(ResponseStatusException ex, HttpServletRequest request) {
         HttpStatus status = ex.getStatusCode() instanceof HttpStatus http ? http : HttpStatus.INTERNAL_SERVER_ERROR;
-        return build(status, ex.getReason(), request);
+        return ResponseEntity.status(status).headers(ex.getHeaders()).body(body(status, ex.getReason(), request));
     }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
@@ -38,6 +39,11 @@ public class GlobalExceptionHandler {
         return build(HttpStatus.NOT_FOUND, "Endpoint not found", request);
     }
 
+    @ExceptionHandler(AccessDeniedException.class)
+    public ResponseEntity<ErrorResponse> handleAccessDenied(AccessDeniedException ex, HttpServletRequest request) {
+        return build(HttpStatus.FORBIDDEN, "Access denied", request);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleGeneric(Exception ex, HttpServletRequest request) {
         log.error("Unexpected error", ex);
@@ -45,14 +51,17 @@ public class GlobalExceptionHandler {
     }
 
     private ResponseEntity<ErrorResponse> build(HttpStatus status, String message, HttpServletRequest request) {
-        ErrorResponse body = new ErrorResponse(
+        return ResponseEntity.status(status).body(body(status, message, request));
+    }
+
+    private ErrorResponse body(HttpStatus status, String message, HttpServletRequest request) {
+        return new ErrorResponse(
                 Instant.now(),
                 status.value(),
                 status.getReasonPhrase(),
                 message,
                 request.getRequestURI(),
-                TraceIdHolder.get()
+                TraceIdHolder.get(request)
         );
-        return ResponseEntity.status(status).body(body);
     }
 }
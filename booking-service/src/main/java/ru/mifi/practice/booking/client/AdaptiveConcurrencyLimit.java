@@ -0,0 +1,113 @@
+package ru.mifi.practice.booking.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+// AIMD limit on concurrent hotel-service calls: every fast success grows the limit by 1/limit
+// (about +1 per round trip of a full window), every failure or slow call multiplies it by the
+// backoff ratio. Calls above the limit are rejected immediately instead of queueing behind a
+// slow dependency. Cancellations and 4xx answers say nothing about hotel-service and are ignored.
+@Component
+public class AdaptiveConcurrencyLimit {
+
+    private final double minLimit;
+    private final double maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private final Predicate<Throwable> failures = new HotelCallFailures();
+    private final Counter rejected;
+    private double limit;
+    private int inFlight;
+
+    public AdaptiveConcurrencyLimit(MeterRegistry meterRegistry,
+                                    @Value("${booking.hotel-client.limit.initial:20}") int initialLimit,
+                                    @Value("${booking.hotel-client.limit.min:2}") int minLimit,
+                                    @Value("${booking.hotel-client.limit.max:100}") int maxLimit,
+                                    @Value("${booking.hotel-client.limit.latency-threshold:500ms}") Duration latencyThreshold,
+                                    @Value("${booking.hotel-client.limit.backoff-ratio:0.9}") double backoffRatio) {
+        if (minLimit < 1 || maxLimit < minLimit || backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Invalid concurrency limit settings");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        Gauge.builder("booking.hotel.concurrency.limit", this, AdaptiveConcurrencyLimit::limit).register(meterRegistry);
+        Gauge.builder("booking.hotel.concurrency.in-flight", this, AdaptiveConcurrencyLimit::inFlight).register(meterRegistry);
+        this.rejected = Counter.builder("booking.hotel.concurrency.rejected").register(meterRegistry);
+    }
+
+    public <T> Mono<T> wrap(Mono<T> call) {
+        return Mono.defer(() -> {
+            if (!tryAcquire()) {
+                rejected.increment();
+                return Mono.error(new LimitExceededException());
+            }
+            long start = System.nanoTime();
+            // released before the signal travels downstream, so a caller never observes its own permit
+            AtomicBoolean released = new AtomicBoolean();
+            return call.doOnSuccess(value -> release(released, null, System.nanoTime() - start))
+                    .doOnError(error -> release(released, error, System.nanoTime() - start))
+                    .doOnCancel(() -> {
+                        if (released.compareAndSet(false, true)) {
+                            release(SignalType.CANCEL, null, 0);
+                        }
+                    });
+        });
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public double rejected() {
+        return rejected.count();
+    }
+
+    private synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    private void release(AtomicBoolean released, Throwable error, long elapsedNanos) {
+        if (released.compareAndSet(false, true)) {
+            release(error == null ? SignalType.ON_COMPLETE : SignalType.ON_ERROR, error, elapsedNanos);
+        }
+    }
+
+    private synchronized void release(SignalType signal, Throwable error, long elapsedNanos) {
+        inFlight--;
+        if (signal == SignalType.CANCEL) {
+            return;
+        }
+        if (error != null ? failures.test(error) : elapsedNanos > latencyThresholdNanos) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (error == null) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    public static class LimitExceededException extends RuntimeException {
+
+        LimitExceededException() {
+            super("hotel-service concurrency limit reached", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package ru.mifi.practice.booking.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Hedged reads for idempotent hotel-service calls: if the first attempt has not answered within the
+// configured percentile of recent latencies, a second one is sent (the load-balanced client hands it
+// to the next instance) and whichever answers first wins, the other is cancelled. Every call tops up
+// a budget by max-ratio and every hedge spends one from it, so hedges stay below that share of
+// traffic even when hotel-service is slow across the board.
+@Component
+public class HedgingPolicy {
+
+    // Hedges that may be saved up during a quiet period and spent at once.
+    private static final long BUDGET_CAP = 10_000;
+    private static final long HEDGE_COST = 1_000;
+    private static final int RECOMPUTE_EVERY = 16;
+
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long deposit;
+    private final long[] latencies;
+    private final AtomicLong budget = new AtomicLong();
+    private final Counter sent;
+    private final Counter won;
+    private volatile long delayNanos;
+    private long recorded;
+
+    public HedgingPolicy(MeterRegistry meterRegistry,
+                         @Value("${booking.hotel-client.hedging.enabled:true}") boolean enabled,
+                         @Value("${booking.hotel-client.hedging.percentile:0.95}") double percentile,
+                         @Value("${booking.hotel-client.hedging.min-delay:20ms}") Duration minDelay,
+                         @Value("${booking.hotel-client.hedging.initial-delay:100ms}") Duration initialDelay,
+                         @Value("${booking.hotel-client.hedging.max-ratio:0.1}") double maxRatio,
+                         @Value("${booking.hotel-client.hedging.window:256}") int window) {
+        if (percentile <= 0 || percentile >= 1 || maxRatio < 0 || maxRatio > 1 || window < RECOMPUTE_EVERY) {
+            throw new IllegalArgumentException("Invalid hedging settings");
+        }
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayNanos = minDelay.toNanos();
+        this.deposit = Math.round(maxRatio * HEDGE_COST);
+        this.latencies = new long[window];
+        this.delayNanos = Math.max(minDelayNanos, initialDelay.toNanos());
+        this.sent = Counter.builder("booking.hotel.hedge.sent").register(meterRegistry);
+        this.won = Counter.builder("booking.hotel.hedge.won").register(meterRegistry);
+        Gauge.builder("booking.hotel.hedge.delay", this, policy -> policy.delayNanos)
+                .baseUnit("nanoseconds")
+                .register(meterRegistry);
+    }
+
+    // The attempt is subscribed to once per try, so it must be cold and safe to repeat.
+    public <T> Mono<T> hedge(Mono<T> attempt) {
+        if (!enabled) {
+            return attempt;
+        }
+        return Mono.defer(() -> {
+            budget.accumulateAndGet(deposit, (current, add) -> Math.min(BUDGET_CAP, current + add));
+            // A primary that fails outright is not hedged: its error is the answer, and retries are the caller's.
+            Sinks.Empty<Void> primaryFailed = Sinks.empty();
+            Mono<T> primary = timed(attempt).doOnError(error -> primaryFailed.tryEmitEmpty());
+            Mono<T> backup = Mono.delay(Duration.ofNanos(delayNanos))
+                    .takeUntilOther(primaryFailed.asMono())
+                    .filter(tick -> tryWithdraw())
+                    .flatMap(tick -> {
+                        sent.increment();
+                        return timed(attempt).doOnNext(value -> won.increment());
+                    });
+            return Mono.firstWithValue(primary, backup).onErrorMap(NoSuchElementException.class, HedgingPolicy::firstFailure);
+        });
+    }
+
+    public Duration delay() {
+        return Duration.ofNanos(delayNanos);
+    }
+
+    public double hedgesSent() {
+        return sent.count();
+    }
+
+    public double hedgesWon() {
+        return won.count();
+    }
+
+    // Only attempts that answered are sampled; a cancelled loser's elapsed time is a lower bound, not a latency.
+    private <T> Mono<T> timed(Mono<T> attempt) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return attempt.doOnSuccess(value -> record(System.nanoTime() - start))
+                    .doOnError(error -> record(System.nanoTime() - start));
+        });
+    }
+
+    private synchronized void record(long elapsedNanos) {
+        latencies[(int) (recorded % latencies.length)] = elapsedNanos;
+        recorded++;
+        if (recorded % RECOMPUTE_EVERY == 0) {
+            long[] window = Arrays.copyOf(latencies, (int) Math.min(recorded, latencies.length));
+            Arrays.sort(window);
+            long quantile = window[(int) Math.min(window.length - 1, Math.ceil(percentile * window.length) - 1)];
+            delayNanos = Math.max(minDelayNanos, quantile);
+        }
+    }
+
+    private boolean tryWithdraw() {
+        long current;
+        do {
+            current = budget.get();
+            if (current < HEDGE_COST) {
+                return false;
+            }
+        } while (!budget.compareAndSet(current, current - HEDGE_COST));
+        return true;
+    }
+
+    // firstWithValue reports "no source produced a value" and keeps the real errors in a composite
+    // cause, primary first; callers and retry filters expect the hotel-service failure itself.
+    private static Throwable firstFailure(NoSuchElementException ex) {
+        if (ex.getCause() == null) {
+            return ex;
+        }
+        List<Throwable> failures = Exceptions.unwrapMultiple(ex.getCause());
+        return failures.isEmpty() ? ex : failures.get(0);
+    }
+}
@@ -0,0 +1,37 @@
+package ru.mifi.practice.booking.client;
+
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.function.Predicate;
+
+// What counts as hotel-service being unhealthy: connection errors, read timeouts and 5xx.
+// 4xx answers are the caller's problem and must neither open the breaker nor shrink the limit.
+// Public with a no-arg constructor because resilience4j instantiates it from application.yml.
+public class HotelCallFailures implements Predicate<Throwable> {
+
+    @Override
+    public boolean test(Throwable throwable) {
+        if (throwable instanceof WebClientRequestException) {
+            return true;
+        }
+        if (throwable instanceof WebClientResponseException ex) {
+            return ex.getStatusCode().is5xxServerError();
+        }
+        return false;
+    }
+
+    static boolean isTimeout(Throwable throwable) {
+        return throwable instanceof WebClientRequestException ex && ex.getCause() instanceof ReadTimeoutException;
+    }
+
+    // The call was refused locally and never reached hotel-service.
+    public static boolean isShed(Throwable throwable) {
+        return throwable instanceof CallNotPermittedException
+                || throwable instanceof BulkheadFullException
+                || throwable instanceof AdaptiveConcurrencyLimit.LimitExceededException;
+    }
+}
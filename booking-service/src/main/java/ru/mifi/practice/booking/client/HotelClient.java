@@ -1,6 +1,11 @@
 package ru.mifi.practice.booking.client;
 
-import lombok.RequiredArgsConstructor;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
@@ -12,66 +17,108 @@ import reactor.util.retry.Retry;
 import ru.mifi.practice.booking.client.dto.AvailabilityRequest;
 import ru.mifi.practice.booking.client.dto.AvailabilityResponse;
 import ru.mifi.practice.booking.client.dto.RoomRecommendation;
+import ru.mifi.practice.booking.security.InternalIdentity;
 
 import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
-import java.util.concurrent.TimeoutException;
 
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class HotelClient {
 
-    private final WebClient.Builder webClientBuilder;
+    private static final String INSTANCE = "hotel-service";
 
-    public AvailabilityResponse confirmAvailability(Long roomId,
-                                                    LocalDate start,
-                                                    LocalDate end,
-                                                    String requestId,
-                                                    String token) {
+    private final WebClient hotelWebClient;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final HedgingPolicy hedgingPolicy;
+
+    public HotelClient(WebClient hotelWebClient,
+                       CircuitBreakerRegistry circuitBreakerRegistry,
+                       BulkheadRegistry bulkheadRegistry,
+                       AdaptiveConcurrencyLimit concurrencyLimit,
+                       HedgingPolicy hedgingPolicy) {
+        this.hotelWebClient = hotelWebClient;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(INSTANCE);
+        this.bulkhead = bulkheadRegistry.bulkhead(INSTANCE);
+        this.concurrencyLimit = concurrencyLimit;
+        this.hedgingPolicy = hedgingPolicy;
+    }
+
+    public Mono<AvailabilityResponse> confirmAvailability(Long roomId,
+                                                          LocalDate start,
+                                                          LocalDate end,
+                                                          String requestId,
+                                                          String token) {
         AvailabilityRequest body = new AvailabilityRequest(start, end, requestId);
-        return webClientBuilder.build()
+        return hotelWebClient
                 .post()
-                .uri("http://hotel-service/api/rooms/{id}/confirm-availability", roomId)
-                .header(HttpHeaders.AUTHORIZATION, bearer(token))
+                .uri("/rooms/{id}/confirm-availability", roomId)
+                .headers(headers -> credentials(headers, token))
                 .bodyValue(body)
                 .retrieve()
                 .onStatus(HttpStatusCode::isError, clientResponse -> clientResponse.createException().flatMap(Mono::error))
                 .bodyToMono(AvailabilityResponse.class)
-                .timeout(Duration.ofSeconds(3))
-                .retryWhen(defaultRetry())
-                .block();
+                .transform(this::guarded)
+                .retryWhen(defaultRetry());
     }
 
-    public void release(Long roomId, String requestId, String token) {
+    public Mono<AvailabilityResponse> commit(Long roomId, String requestId, String token) {
         AvailabilityRequest body = new AvailabilityRequest(null, null, requestId);
-        try {
-            webClientBuilder.build()
-                    .post()
-                    .uri("http://hotel-service/api/rooms/{id}/release", roomId)
-                    .header(HttpHeaders.AUTHORIZATION, bearer(token))
-                    .bodyValue(body)
-                    .retrieve()
-                    .bodyToMono(Void.class)
-                    .timeout(Duration.ofSeconds(2))
-                    .block();
-        } catch (Exception ex) {
-            log.warn("Release request {} failed: {}", requestId, ex.getMessage());
-        }
+        return hotelWebClient
+                .post()
+                .uri("/rooms/{id}/commit", roomId)
+                .headers(headers -> credentials(headers, token))
+                .bodyValue(body)
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, clientResponse -> clientResponse.createException().flatMap(Mono::error))
+                .bodyToMono(AvailabilityResponse.class)
+                .transform(this::guarded)
+                .retryWhen(defaultRetry());
+    }
+
+    public Mono<Void> release(Long roomId, String requestId, String token) {
+        AvailabilityRequest body = new AvailabilityRequest(null, null, requestId);
+        return hotelWebClient
+                .post()
+                .uri("/rooms/{id}/release", roomId)
+                .headers(headers -> credentials(headers, token))
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(Void.class)
+                .transform(this::guarded);
     }
 
-    public List<RoomRecommendation> recommend(String token) {
-        return webClientBuilder.build()
+    // A read without side effects, so a slow attempt may be hedged; each attempt is guarded on its own.
+    public Mono<List<RoomRecommendation>> recommend(String token, int limit) {
+        Mono<List<RoomRecommendation>> attempt = hotelWebClient
                 .get()
-                .uri("http://hotel-service/api/rooms/recommend")
-                .header(HttpHeaders.AUTHORIZATION, bearer(token))
+                .uri("/rooms/recommend?limit={limit}", limit)
+                .headers(headers -> credentials(headers, token))
                 .retrieve()
                 .bodyToFlux(RoomRecommendation.class)
                 .collectList()
-                .timeout(Duration.ofSeconds(3))
-                .retryWhen(defaultRetry())
-                .block();
+                .transform(this::guarded);
+        return hedgingPolicy.hedge(attempt)
+                .retryWhen(defaultRetry());
+    }
+
+    CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
+
+    Bulkhead bulkhead() {
+        return bulkhead;
+    }
+
+    // Outermost first: adaptive limit, bulkhead, circuit breaker. Retries sit outside all three so
+    // every attempt is admitted (and measured) on its own, and shed calls are never retried.
+    private <T> Mono<T> guarded(Mono<T> call) {
+        return concurrencyLimit.wrap(call
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(BulkheadOperator.of(bulkhead)));
     }
 
     private Retry defaultRetry() {
@@ -90,7 +137,7 @@ public class HotelClient {
     }
 
     private boolean shouldRetry(Throwable throwable) {
-        if (throwable instanceof TimeoutException) {
+        if (HotelCallFailures.isTimeout(throwable)) {
             return true;
         }
         if (throwable instanceof WebClientResponseException ex) {
@@ -99,7 +146,13 @@ public class HotelClient {
         return false;
     }
 
-    private String bearer(String token) {
-        return token != null ? "Bearer " + token : "";
+    // A request relayed by the gateway carries the internal identity instead of the user's JWT;
+    // it is passed on as is so hotel-service verifies it the same cheap way.
+    private void credentials(HttpHeaders headers, String token) {
+        if (InternalIdentity.isInternal(token)) {
+            headers.set(InternalIdentity.HEADER, token);
+        } else if (token != null) {
+            headers.setBearerAuth(token);
+        }
     }
 }
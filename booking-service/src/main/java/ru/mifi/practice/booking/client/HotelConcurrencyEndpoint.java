@@ -0,0 +1,46 @@
+package ru.mifi.practice.booking.client;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+// One view of everything that sheds hotel-service calls: /actuator/hotelconcurrency
+@Component
+@Endpoint(id = "hotelconcurrency")
+public class HotelConcurrencyEndpoint {
+
+    private final HotelClient hotelClient;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+    public HotelConcurrencyEndpoint(HotelClient hotelClient, AdaptiveConcurrencyLimit concurrencyLimit) {
+        this.hotelClient = hotelClient;
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    @ReadOperation
+    public State state() {
+        CircuitBreaker circuitBreaker = hotelClient.circuitBreaker();
+        Bulkhead bulkhead = hotelClient.bulkhead();
+        return new State(
+                concurrencyLimit.limit(),
+                concurrencyLimit.inFlight(),
+                (long) concurrencyLimit.rejected(),
+                circuitBreaker.getState().name(),
+                circuitBreaker.getMetrics().getFailureRate(),
+                circuitBreaker.getMetrics().getSlowCallRate(),
+                bulkhead.getMetrics().getAvailableConcurrentCalls(),
+                bulkhead.getMetrics().getMaxAllowedConcurrentCalls());
+    }
+
+    public record State(int limit,
+                        int inFlight,
+                        long rejected,
+                        String circuitBreaker,
+                        float failureRate,
+                        float slowCallRate,
+                        int bulkheadAvailable,
+                        int bulkheadMax) {
+    }
+}
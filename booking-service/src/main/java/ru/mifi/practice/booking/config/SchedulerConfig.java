@@ -0,0 +1,33 @@
+package ru.mifi.practice.booking.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+@Configuration
+public class SchedulerConfig {
+
+    // JPA work of the reactive booking saga runs here; sized to the connection pool so
+    // blocked threads never exceed available connections, while remote calls wait on Netty.
+    @Bean(name = "jdbcScheduler", destroyMethod = "dispose")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public Scheduler jdbcScheduler(@Value("${booking.jdbc-scheduler.threads:10}") int threads,
+                                   @Value("${booking.jdbc-scheduler.queue-size:10000}") int queueSize) {
+        return Schedulers.newBoundedElastic(threads, queueSize, "booking-jdbc");
+    }
+
+    // With spring.threads.virtual.enabled every step gets its own virtual thread;
+    // the Hikari pool is what bounds concurrent JDBC work.
+    @Bean(name = "jdbcScheduler", destroyMethod = "dispose")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public Scheduler virtualJdbcScheduler() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("booking-jdbc-");
+        executor.setVirtualThreads(true);
+        return Schedulers.fromExecutor(executor);
+    }
+}
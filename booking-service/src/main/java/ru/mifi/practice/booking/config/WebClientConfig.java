@@ -1,16 +1,68 @@
 package ru.mifi.practice.booking.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.regex.Pattern;
 
 @Configuration
 public class WebClientConfig {
 
+    private static final Pattern ID_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+
     @Bean
     @LoadBalanced
     public WebClient.Builder webClientBuilder() {
         return WebClient.builder();
     }
+
+    // Pool metrics (active, idle, pending connections and acquire time) are published as
+    // reactor.netty.connection.provider.* under the pool name.
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider hotelConnectionProvider(
+            @Value("${booking.hotel-client.pool.max-connections:100}") int maxConnections,
+            @Value("${booking.hotel-client.pool.pending-acquire-max-count:1000}") int pendingAcquireMaxCount,
+            @Value("${booking.hotel-client.pool.pending-acquire-timeout:2s}") Duration pendingAcquireTimeout,
+            @Value("${booking.hotel-client.pool.max-idle-time:30s}") Duration maxIdleTime,
+            @Value("${booking.hotel-client.pool.max-life-time:5m}") Duration maxLifeTime,
+            @Value("${booking.hotel-client.pool.evict-interval:30s}") Duration evictInterval) {
+        return ConnectionProvider.builder("hotel-service")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictInterval)
+                .metrics(true)
+                .build();
+    }
+
+    // Built once from the load-balanced builder so every HotelClient call shares one pool
+    // and resolves http://hotel-service through service discovery.
+    @Bean
+    public WebClient hotelWebClient(@LoadBalanced WebClient.Builder webClientBuilder,
+                                    ConnectionProvider hotelConnectionProvider,
+                                    @Value("${booking.hotel-client.connect-timeout:1s}") Duration connectTimeout,
+                                    @Value("${booking.hotel-client.response-timeout:3s}") Duration responseTimeout,
+                                    @Value("${booking.hotel-client.protocol:HTTP11}") HttpProtocol protocol) {
+        HttpClient httpClient = HttpClient.create(hotelConnectionProvider)
+                .protocol(protocol)
+                .keepAlive(true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(responseTimeout)
+                .metrics(true, uri -> ID_SEGMENT.matcher(uri).replaceAll("/{id}"));
+        return webClientBuilder.clone()
+                .baseUrl("http://hotel-service/api")
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
 }
@@ -2,6 +2,9 @@ package ru.mifi.practice.booking.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
@@ -17,10 +20,15 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import ru.mifi.practice.booking.dto.BookingRequest;
 import ru.mifi.practice.booking.dto.BookingResponse;
+import ru.mifi.practice.booking.security.JwtTokenService;
+import ru.mifi.practice.booking.service.BookingEvents;
 import ru.mifi.practice.booking.service.BookingWorkflowService;
 
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -29,12 +37,22 @@ import java.util.List;
 public class BookingController {
 
     private final BookingWorkflowService bookingService;
+    private final BookingEvents bookingEvents;
 
     @PreAuthorize("hasAnyRole('USER','ADMIN')")
     @PostMapping("/booking")
-    public BookingResponse create(@Valid @RequestBody BookingRequest request, Authentication authentication) {
+    public Mono<ResponseEntity<BookingResponse>> create(@Valid @RequestBody BookingRequest request,
+                                                        @RequestParam(defaultValue = "false") boolean async,
+                                                        Authentication authentication) {
         JwtAuthenticationToken token = (JwtAuthenticationToken) authentication;
-        return bookingService.createBooking(request, token.getName(), token.getToken().getTokenValue());
+        if (async) {
+            return bookingService.submitBooking(request, token.getName(), userId(token))
+                    .map(booking -> ResponseEntity.accepted()
+                            .location(URI.create("/booking/" + booking.id()))
+                            .body(booking));
+        }
+        return bookingService.createBooking(request, token.getName(), userId(token), token.getToken().getTokenValue())
+                .map(ResponseEntity::ok);
     }
 
     @PreAuthorize("hasAnyRole('USER','ADMIN')")
@@ -45,7 +63,7 @@ public class BookingController {
         JwtAuthenticationToken token = (JwtAuthenticationToken) authentication;
         boolean isAdmin = token.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        return bookingService.list(token.getName(), isAdmin, pageable);
+        return bookingService.list(token.getName(), userId(token), isAdmin, pageable);
     }
 
     @PreAuthorize("hasAnyRole('USER','ADMIN')")
@@ -56,11 +74,27 @@ public class BookingController {
         return bookingService.getById(id, token.getName(), isAdmin);
     }
 
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    @GetMapping(value = "/booking/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<BookingResponse>> events(@PathVariable Long id, Authentication authentication) {
+        JwtAuthenticationToken token = (JwtAuthenticationToken) authentication;
+        boolean isAdmin = token.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
+        bookingService.getById(id, token.getName(), isAdmin);
+        return bookingEvents.withHeartbeat(
+                bookingService.statusStream(id).map(booking -> ServerSentEvent.builder(booking).event("status").build()),
+                ServerSentEvent.<BookingResponse>builder().comment("heartbeat").build());
+    }
+
     @PreAuthorize("hasAnyRole('USER','ADMIN')")
     @DeleteMapping("/booking/{id}")
-    public void cancel(@PathVariable Long id, Authentication authentication) {
+    public Mono<Void> cancel(@PathVariable Long id, Authentication authentication) {
         JwtAuthenticationToken token = (JwtAuthenticationToken) authentication;
         boolean isAdmin = token.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
-        bookingService.cancel(id, token.getName(), isAdmin, token.getToken().getTokenValue());
+        return bookingService.cancel(id, token.getName(), isAdmin);
+    }
+
+    // Tokens issued before the uid claim existed still resolve the user by name.
+    private Long userId(JwtAuthenticationToken token) {
+        return token.getToken().getClaim(JwtTokenService.USER_ID_CLAIM) instanceof Number id ? id.longValue() : null;
     }
 }
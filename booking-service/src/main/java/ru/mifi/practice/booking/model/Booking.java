@@ -31,7 +31,7 @@ public class Booking {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @Column(nullable = false)
+    // null while an async auto-select booking waits for its room
     private Long roomId;
 
     @Column(nullable = false)
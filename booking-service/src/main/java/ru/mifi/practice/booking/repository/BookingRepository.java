@@ -1,13 +1,19 @@
 package ru.mifi.practice.booking.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import ru.mifi.practice.booking.model.Booking;
+import ru.mifi.practice.booking.model.BookingStatus;
 import ru.mifi.practice.booking.model.User;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface BookingRepository extends JpaRepository<Booking, Long> {
 
@@ -16,4 +22,23 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
     Page<Booking> findByUser(User user, Pageable pageable);
 
     Optional<Booking> findByRequestId(String requestId);
+
+    @Query("select b.requestId from Booking b")
+    Stream<String> streamRequestIds();
+
+    List<Booking> findByOrderByIdDesc(Limit limit);
+
+    @Query("select b.id from Booking b where b.status = :status and b.createdAt < :before order by b.id asc")
+    List<Long> findIdsByStatusCreatedBefore(BookingStatus status, Instant before, Limit limit);
+
+    // Status changes are conditional so a worker and a cancel racing on one booking cannot overwrite
+    // each other; 0 means the booking had already left the expected status.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Booking b set b.status = :to where b.id = :id and b.status = :from")
+    int transition(Long id, BookingStatus from, BookingStatus to);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Booking b set b.roomId = :roomId where b.id = :id"
+            + " and b.status = ru.mifi.practice.booking.model.BookingStatus.PENDING")
+    int assignRoom(Long id, Long roomId);
 }
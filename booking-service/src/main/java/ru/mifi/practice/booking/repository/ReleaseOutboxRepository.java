@@ -0,0 +1,17 @@
+package ru.mifi.practice.booking.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import ru.mifi.practice.booking.model.ReleaseOutboxEntry;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface ReleaseOutboxRepository extends JpaRepository<ReleaseOutboxEntry, Long> {
+
+    boolean existsByRequestId(String requestId);
+
+    @Query("select e from ReleaseOutboxEntry e where e.nextAttemptAt <= :now order by e.nextAttemptAt asc")
+    List<ReleaseOutboxEntry> findDue(Instant now, Limit limit);
+}
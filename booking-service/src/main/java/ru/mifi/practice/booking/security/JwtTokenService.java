@@ -28,11 +28,23 @@ public class JwtTokenService {
         this.expirationSeconds = expirationSeconds;
     }
 
+    public static final String USER_ID_CLAIM = "uid";
+
     public String generate(User user) {
+        return generate(user.getUsername(), user.getId(), user.getRole());
+    }
+
+    // Token for calls booking-service makes on its own behalf, e.g. draining the release outbox.
+    public String generateService(String serviceName) {
+        return generate(serviceName, null, Role.USER);
+    }
+
+    private String generate(String subject, Long userId, Role role) {
         Instant now = Instant.now();
         return Jwts.builder()
-                .setSubject(user.getUsername())
-                .claim("roles", List.of(user.getRole().name()))
+                .setSubject(subject)
+                .claim(USER_ID_CLAIM, userId)
+                .claim("roles", List.of(role.name()))
                 .setIssuedAt(Date.from(now))
                 .setExpiration(Date.from(now.plusSeconds(expirationSeconds)))
                 .signWith(key, SignatureAlgorithm.HS256)
@@ -0,0 +1,55 @@
+package ru.mifi.practice.booking.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import ru.mifi.practice.booking.dto.BookingResponse;
+import ru.mifi.practice.booking.model.BookingStatus;
+
+import java.time.Duration;
+
+// In-process fan-out of booking status changes for the SSE stream; subscribers that cannot
+// keep up miss intermediate events and still get the current state from the database first.
+@Component
+public class BookingEvents {
+
+    private final Sinks.Many<BookingResponse> sink = Sinks.many().multicast().directBestEffort();
+    private final Duration pollInterval;
+    private final Duration heartbeatInterval;
+    private final Duration timeout;
+
+    public BookingEvents(@Value("${booking.events.poll-interval:5s}") Duration pollInterval,
+                         @Value("${booking.events.heartbeat:15s}") Duration heartbeatInterval,
+                         @Value("${booking.events.timeout:30m}") Duration timeout) {
+        this.pollInterval = pollInterval;
+        this.heartbeatInterval = heartbeatInterval;
+        this.timeout = timeout;
+    }
+
+    public synchronized void publish(BookingResponse booking) {
+        sink.tryEmitNext(booking);
+    }
+
+    public Flux<BookingResponse> of(Long bookingId) {
+        return sink.asFlux().filter(booking -> booking.id().equals(bookingId));
+    }
+
+    // Subscribes to live changes before the first read, so a change landing in between is not lost.
+    // The sink only sees this instance, so the row is also re-read every poll-interval: a booking
+    // finished by another instance or its sweeper still ends the stream. Gives up after timeout.
+    public Flux<BookingResponse> follow(Long bookingId, Mono<BookingResponse> read) {
+        return Flux.merge(of(bookingId), read, Flux.interval(pollInterval).concatMap(tick -> read))
+                .distinctUntilChanged()
+                .takeUntil(booking -> booking.status() != BookingStatus.PENDING)
+                .take(timeout);
+    }
+
+    // Interleaves heartbeat items while the stream is open, so proxies do not drop an idle connection.
+    public <T> Flux<T> withHeartbeat(Flux<T> stream, T heartbeat) {
+        return stream.publish(events -> Flux.merge(events,
+                Flux.interval(heartbeatInterval).map(tick -> heartbeat)
+                        .takeUntilOther(events.then(Mono.just(true)))));
+    }
+}
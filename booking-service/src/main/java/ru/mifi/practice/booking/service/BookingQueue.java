@@ -0,0 +1,84 @@
+package ru.mifi.practice.booking.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+// Bounded hand-off between POST /booking?async=true and the workers confirming holds.
+// The PENDING rows are the durable queue; when this buffer is full a booking simply waits
+// for PendingBookingSweeper, so bursts never turn into client timeouts.
+@Component
+@Slf4j
+public class BookingQueue {
+
+    private final Sinks.Many<Long> sink;
+    private final int concurrency;
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Counter overflowed;
+    private Disposable workers;
+
+    public BookingQueue(MeterRegistry meterRegistry,
+                        @Value("${booking.async.queue-capacity:10000}") int capacity,
+                        @Value("${booking.async.concurrency:32}") int concurrency) {
+        this.sink = Sinks.many().unicast().onBackpressureBuffer(new ArrayBlockingQueue<>(capacity));
+        this.concurrency = concurrency;
+        this.overflowed = Counter.builder("booking.async.overflowed")
+                .description("Async bookings left to the sweeper because the queue was full")
+                .register(meterRegistry);
+        Gauge.builder("booking.async.queued", queued, AtomicInteger::get)
+                .description("Async bookings waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("booking.async.in-flight", inFlight, Set::size)
+                .description("Async bookings queued or being confirmed")
+                .register(meterRegistry);
+    }
+
+    public synchronized void start(Function<Long, Mono<Void>> worker) {
+        if (workers != null) {
+            return;
+        }
+        workers = sink.asFlux()
+                .doOnNext(id -> queued.decrementAndGet())
+                .flatMap(id -> worker.apply(id)
+                        .onErrorResume(ex -> {
+                            log.warn("Async booking {} failed: {}", id, ex.getMessage());
+                            return Mono.empty();
+                        })
+                        .doFinally(signal -> inFlight.remove(id)), concurrency)
+                .subscribe();
+    }
+
+    public synchronized boolean offer(Long bookingId) {
+        if (!inFlight.add(bookingId)) {
+            return true;
+        }
+        if (sink.tryEmitNext(bookingId).isFailure()) {
+            inFlight.remove(bookingId);
+            overflowed.increment();
+            return false;
+        }
+        queued.incrementAndGet();
+        return true;
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (workers != null) {
+            workers.dispose();
+        }
+    }
+}
@@ -1,15 +1,21 @@
 package ru.mifi.practice.booking.service;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import ru.mifi.practice.booking.client.HotelCallFailures;
 import ru.mifi.practice.booking.client.HotelClient;
-import ru.mifi.practice.booking.client.dto.RoomRecommendation;
 import ru.mifi.practice.booking.dto.BookingRequest;
 import ru.mifi.practice.booking.dto.BookingResponse;
 import ru.mifi.practice.booking.mapper.BookingMapper;
@@ -17,76 +23,228 @@ import ru.mifi.practice.booking.model.Booking;
 import ru.mifi.practice.booking.model.BookingStatus;
 import ru.mifi.practice.booking.model.User;
 import ru.mifi.practice.booking.repository.BookingRepository;
+import ru.mifi.practice.booking.security.JwtTokenService;
 
 import java.time.LocalDate;
-import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class BookingWorkflowService {
 
+    private static final String SERVICE_NAME = "booking-service";
+
     private final BookingRepository bookingRepository;
     private final UserService userService;
     private final HotelClient hotelClient;
+    private final ReleaseOutbox releaseOutbox;
+    private final BookingQueue bookingQueue;
+    private final BookingEvents bookingEvents;
+    private final IdempotencyIndex idempotencyIndex;
+    private final RecommendedRooms recommendedRooms;
+    private final JwtTokenService jwtTokenService;
     private final BookingMapper mapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Scheduler jdbcScheduler;
 
-    @Transactional
-    public BookingResponse createBooking(BookingRequest request, String username, String token) {
-        User user = userService.getByUsername(username);
-        validateDates(request.startDate(), request.endDate());
+    // Each step touching the database is a short transaction on the bounded JDBC scheduler;
+    // remote calls to hotel-service run on Netty between them, so no thread or connection
+    // is held while a hold is being confirmed.
+    public Mono<BookingResponse> createBooking(BookingRequest request, String username, Long userId, String token) {
         String requestId = Optional.ofNullable(request.requestId()).orElse(UUID.randomUUID().toString());
-        Booking existing = bookingRepository.findByRequestId(requestId).orElse(null);
-        if (existing != null) {
-            log.info("Idempotent request detected: requestId={}, bookingId={}", requestId, existing.getId());
-            return mapper.toResponse(existing);
-        }
+        return replay(requestId).switchIfEmpty(start(request, requestId, username, userId).flatMap(start -> {
+            if (start.existing() != null) {
+                return Mono.just(start.existing());
+            }
+            return resolveRoom(request)
+                    .flatMap(roomId -> insertPending(start.user(), roomId, request, requestId, username))
+                    .flatMap(created -> created.duplicate()
+                            ? Mono.just(mapper.toResponse(created.booking()))
+                            : confirm(created.booking(), token, username));
+        }));
+    }
 
-        Long roomId = resolveRoom(request, token);
-        Booking booking = Booking.builder()
-                .user(user)
-                .roomId(roomId)
-                .startDate(request.startDate())
-                .endDate(request.endDate())
-                .status(BookingStatus.PENDING)
-                .requestId(requestId)
-                .build();
-        bookingRepository.save(booking);
-        log.info("Booking created: bookingId={}, requestId={}, roomId={}, status=PENDING, user={}", 
-                booking.getId(), requestId, roomId, username);
-
-        try {
-            log.info("Requesting availability confirmation: bookingId={}, requestId={}, roomId={}", 
-                    booking.getId(), requestId, roomId);
-            hotelClient.confirmAvailability(roomId, request.startDate(), request.endDate(), requestId, token);
-            booking.setStatus(BookingStatus.CONFIRMED);
-            bookingRepository.save(booking);
-            log.info("Booking confirmed: bookingId={}, requestId={}, status=CONFIRMED, user={}", 
-                    booking.getId(), requestId, username);
-        } catch (Exception ex) {
-            log.warn("Booking confirmation failed: bookingId={}, requestId={}, error={}", 
-                    booking.getId(), requestId, ex.getMessage());
-            booking.setStatus(BookingStatus.CANCELLED);
+    // Async mode answers as soon as the PENDING row is committed; the hold is confirmed by a
+    // BookingQueue worker using the service token, and an auto-selected room is picked there too.
+    public Mono<BookingResponse> submitBooking(BookingRequest request, String username, Long userId) {
+        String requestId = Optional.ofNullable(request.requestId()).orElse(UUID.randomUUID().toString());
+        return replay(requestId).switchIfEmpty(start(request, requestId, username, userId).flatMap(start -> {
+            if (start.existing() != null) {
+                return Mono.just(start.existing());
+            }
+            if (!request.autoSelect() && request.roomId() == null) {
+                return Mono.error(roomRequired());
+            }
+            Long roomId = request.autoSelect() ? null : request.roomId();
+            return insertPending(start.user(), roomId, request, requestId, username)
+                    .map(created -> {
+                        if (!created.duplicate()) {
+                            bookingQueue.offer(created.booking().getId());
+                        }
+                        return mapper.toResponse(created.booking());
+                    });
+        }));
+    }
+
+    private Mono<BookingResponse> replay(String requestId) {
+        return Mono.defer(() -> Mono.justOrEmpty(idempotencyIndex.recent(requestId)))
+                .doOnNext(existing -> log.info("Idempotent request detected: requestId={}, bookingId={}", requestId, existing.id()));
+    }
+
+    // Only requestIds the filter cannot rule out cost a lookup; the rest go straight to the insert.
+    private Mono<Start> start(BookingRequest request, String requestId, String username, Long userId) {
+        return inTransaction(() -> {
+            User user = user(username, userId);
+            validateDates(request.startDate(), request.endDate());
+            BookingResponse existing = idempotencyIndex.mightExist(requestId)
+                    ? bookingRepository.findByRequestId(requestId).map(mapper::toResponse).orElse(null)
+                    : null;
+            return new Start(user, existing);
+        }).doOnNext(start -> {
+            if (start.existing() != null) {
+                log.info("Idempotent request detected: requestId={}, bookingId={}", requestId, start.existing().id());
+                idempotencyIndex.remember(start.existing());
+            }
+        });
+    }
+
+    @PostConstruct
+    void startWorkers() {
+        bookingQueue.start(this::process);
+    }
+
+    Mono<Void> process(Long bookingId) {
+        String token = jwtTokenService.generateService(SERVICE_NAME);
+        return inTransaction(() -> bookingRepository.findById(bookingId)
+                        .filter(booking -> booking.getStatus() == BookingStatus.PENDING)
+                        .map(booking -> {
+                            booking.getUser().getUsername();
+                            return booking;
+                        })
+                        .orElse(null))
+                .flatMap(booking -> booking.getRoomId() != null
+                        ? Mono.just(booking)
+                        : assignRoom(booking))
+                .flatMap(booking -> confirm(booking, token, booking.getUser().getUsername()))
+                .then();
+    }
+
+    private Mono<Booking> assignRoom(Booking booking) {
+        return recommendedRooms.next()
+                .flatMap(roomId -> inTransaction(() -> {
+                    // cancelled while queued: no room, nothing to confirm
+                    if (bookingRepository.assignRoom(booking.getId(), roomId) == 0) {
+                        return null;
+                    }
+                    booking.setRoomId(roomId);
+                    return booking;
+                }))
+                .doOnNext(assigned -> changed(mapper.toResponse(assigned)))
+                .onErrorResume(ex -> {
+                    log.warn("No room assigned: bookingId={}, requestId={}, error={}",
+                            booking.getId(), booking.getRequestId(), ex.getMessage());
+                    return inTransaction(() -> {
+                        bookingRepository.transition(booking.getId(), BookingStatus.PENDING, BookingStatus.CANCELLED);
+                        return bookingRepository.findById(booking.getId()).map(mapper::toResponse).orElse(null);
+                    }).doOnNext(this::changed).then(Mono.empty());
+                });
+    }
+
+    public Flux<BookingResponse> statusStream(Long id) {
+        return bookingEvents.follow(id, inTransaction(() -> bookingRepository.findById(id).map(mapper::toResponse).orElse(null)));
+    }
+
+    private Mono<Created> insertPending(User user, Long roomId, BookingRequest request, String requestId, String username) {
+        return inTransaction(() -> {
+            Booking booking = Booking.builder()
+                    .user(user)
+                    .roomId(roomId)
+                    .startDate(request.startDate())
+                    .endDate(request.endDate())
+                    .status(BookingStatus.PENDING)
+                    .requestId(requestId)
+                    .build();
             bookingRepository.save(booking);
-            log.info("Compensating: releasing room reservation: bookingId={}, requestId={}, roomId={}", 
-                    booking.getId(), requestId, roomId);
-            hotelClient.release(roomId, requestId, token);
-            log.info("Compensation completed: bookingId={}, requestId={}, status=CANCELLED", 
-                    booking.getId(), requestId);
-            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Unable to confirm room availability");
-        }
+            log.info("Booking created: bookingId={}, requestId={}, roomId={}, status=PENDING, user={}",
+                    booking.getId(), requestId, roomId, username);
+            return new Created(booking, false);
+        }).onErrorResume(DataIntegrityViolationException.class, ex -> inTransaction(() -> {
+            // a concurrent request with the same requestId won the insert; with no such row the only
+            // other constraint is the user reference, i.e. a uid claim for a user deleted since
+            Booking existing = bookingRepository.findByRequestId(requestId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+            log.info("Idempotent request detected: requestId={}, bookingId={}", requestId, existing.getId());
+            return new Created(existing, true);
+        })).doOnNext(created -> idempotencyIndex.remember(mapper.toResponse(created.booking())));
+    }
 
-        return mapper.toResponse(booking);
+    private void changed(BookingResponse booking) {
+        idempotencyIndex.remember(booking);
+        bookingEvents.publish(booking);
+    }
+
+    // The booking is only read before the remote calls; the status is changed conditionally after
+    // them. A cancel that committed in between wins, and the hold it could not release (it may not
+    // have existed yet) is released from here.
+    private Mono<BookingResponse> confirm(Booking booking, String token, String username) {
+        Long roomId = booking.getRoomId();
+        String requestId = booking.getRequestId();
+        log.info("Requesting availability confirmation: bookingId={}, requestId={}, roomId={}",
+                booking.getId(), requestId, roomId);
+        return hotelClient.confirmAvailability(roomId, booking.getStartDate(), booking.getEndDate(), requestId, token)
+                .then(Mono.defer(() -> hotelClient.commit(roomId, requestId, token)))
+                .then(inTransaction(() -> {
+                    if (bookingRepository.transition(booking.getId(), BookingStatus.PENDING, BookingStatus.CONFIRMED) == 1) {
+                        booking.setStatus(BookingStatus.CONFIRMED);
+                        log.info("Booking confirmed: bookingId={}, requestId={}, status=CONFIRMED, user={}",
+                                booking.getId(), requestId, username);
+                        return mapper.toResponse(booking);
+                    }
+                    return compensateIfCancelled(booking.getId(), roomId, requestId);
+                }))
+                .doOnNext(this::changed)
+                .onErrorResume(ex -> {
+                    log.warn("Booking confirmation failed: bookingId={}, requestId={}, error={}",
+                            booking.getId(), requestId, ex.getMessage());
+                    if (!HotelCallFailures.isShed(ex)) {
+                        recommendedRooms.invalidate(roomId);
+                    }
+                    return inTransaction(() -> {
+                        if (bookingRepository.transition(booking.getId(), BookingStatus.PENDING, BookingStatus.CANCELLED) == 1) {
+                            booking.setStatus(BookingStatus.CANCELLED);
+                            releaseOutbox.enqueue(roomId, requestId);
+                            log.info("Compensation queued: bookingId={}, requestId={}, roomId={}, status=CANCELLED",
+                                    booking.getId(), requestId, roomId);
+                            return mapper.toResponse(booking);
+                        }
+                        return compensateIfCancelled(booking.getId(), roomId, requestId);
+                    }).doOnNext(this::changed).then(Mono.error(() -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                            "Unable to confirm room availability")));
+                });
+    }
+
+    // Lost the conditional update: a user cancel leaves the release to the worker holding the booking,
+    // while a booking another worker confirmed meanwhile keeps its hold.
+    private BookingResponse compensateIfCancelled(Long bookingId, Long roomId, String requestId) {
+        Booking current = bookingRepository.findById(bookingId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Booking not found"));
+        if (current.getStatus() == BookingStatus.CANCELLED) {
+            releaseOutbox.enqueue(roomId, requestId);
+            log.info("Booking cancelled during confirmation, compensation queued: bookingId={}, requestId={}, roomId={}",
+                    bookingId, requestId, roomId);
+        }
+        return mapper.toResponse(current);
     }
 
     @Transactional(readOnly = true)
-    public Page<BookingResponse> list(String username, boolean isAdmin, Pageable pageable) {
+    public Page<BookingResponse> list(String username, Long userId, boolean isAdmin, Pageable pageable) {
         if (isAdmin) {
             return bookingRepository.findAll(pageable).map(mapper::toResponse);
         }
-        User user = userService.getByUsername(username);
+        User user = user(username, userId);
         return bookingRepository.findByUser(user, pageable).map(mapper::toResponse);
     }
 
@@ -100,30 +258,49 @@ public class BookingWorkflowService {
         return mapper.toResponse(booking);
     }
 
-    @Transactional
-    public void cancel(Long id, String username, boolean isAdmin, String token) {
-        Booking booking = bookingRepository.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Booking not found"));
-        if (!isAdmin && !booking.getUser().getUsername().equals(username)) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Access denied");
-        }
-        booking.setStatus(BookingStatus.CANCELLED);
-        bookingRepository.save(booking);
-        hotelClient.release(booking.getRoomId(), booking.getRequestId(), token);
+    // A PENDING booking is only marked CANCELLED: the worker confirming it loses its conditional
+    // update and releases the hold once it exists. A CONFIRMED booking's hold is released from here.
+    public Mono<Void> cancel(Long id, String username, boolean isAdmin) {
+        return inTransaction(() -> {
+            Booking booking = bookingRepository.findById(id)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Booking not found"));
+            if (!isAdmin && !booking.getUser().getUsername().equals(username)) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Access denied");
+            }
+            // the second CONFIRMED attempt covers a worker confirming between the first two updates
+            boolean confirmed = bookingRepository.transition(id, BookingStatus.CONFIRMED, BookingStatus.CANCELLED) == 1
+                    || bookingRepository.transition(id, BookingStatus.PENDING, BookingStatus.CANCELLED) == 0
+                    && bookingRepository.transition(id, BookingStatus.CONFIRMED, BookingStatus.CANCELLED) == 1;
+            Booking current = bookingRepository.findById(id)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Booking not found"));
+            if (confirmed) {
+                releaseOutbox.enqueue(current.getRoomId(), current.getRequestId());
+            }
+            return mapper.toResponse(current);
+        }).doOnNext(this::changed).then();
     }
 
-    private Long resolveRoom(BookingRequest request, String token) {
-        if (!request.autoSelect()) {
-            if (request.roomId() == null) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "roomId is required when autoSelect=false");
-            }
-            return request.roomId();
+    private Mono<Long> resolveRoom(BookingRequest request) {
+        if (request.autoSelect()) {
+            return recommendedRooms.next();
         }
-        List<Long> recommended = hotelClient.recommend(token).stream().map(RoomRecommendation::id).toList();
-        if (recommended.isEmpty()) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No rooms available");
+        if (request.roomId() == null) {
+            return Mono.error(roomRequired());
         }
-        return recommended.get(0);
+        return Mono.just(request.roomId());
+    }
+
+    private ResponseStatusException roomRequired() {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "roomId is required when autoSelect=false");
+    }
+
+    private User user(String username, Long userId) {
+        return userId != null ? userService.reference(userId) : userService.getByUsername(username);
+    }
+
+    private <T> Mono<T> inTransaction(Supplier<T> work) {
+        return Mono.fromCallable(() -> transactionTemplate.execute(status -> work.get()))
+                .subscribeOn(jdbcScheduler);
     }
 
     private void validateDates(LocalDate start, LocalDate end) {
@@ -132,4 +309,9 @@ public class BookingWorkflowService {
         }
     }
 
+    private record Start(User user, BookingResponse existing) {
+    }
+
+    private record Created(Booking booking, boolean duplicate) {
+    }
 }
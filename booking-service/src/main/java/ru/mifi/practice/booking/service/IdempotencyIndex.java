@@ -0,0 +1,105 @@
+package ru.mifi.practice.booking.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mifi.practice.booking.dto.BookingResponse;
+import ru.mifi.practice.booking.mapper.BookingMapper;
+import ru.mifi.practice.booking.repository.BookingRepository;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Front for the requestId lookup: recent results answer retries from memory, and the Bloom filter
+// proves most new requestIds absent without a query. Both are per instance and only an
+// optimisation; the unique constraint on request_id still decides races between instances.
+@Component
+@Slf4j
+public class IdempotencyIndex {
+
+    private final BookingRepository bookingRepository;
+    private final BookingMapper mapper;
+    private final TransactionTemplate transactionTemplate;
+    private final RequestIdFilter filter;
+    private final int cacheSize;
+    private final Map<String, BookingResponse> recent;
+    private final Counter recentHits;
+    private final Counter filtered;
+    private final Counter queried;
+
+    public IdempotencyIndex(BookingRepository bookingRepository,
+                            BookingMapper mapper,
+                            TransactionTemplate transactionTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${booking.idempotency.expected-insertions:1000000}") long expectedInsertions,
+                            @Value("${booking.idempotency.fpp:0.01}") double fpp,
+                            @Value("${booking.idempotency.cache-size:10000}") int cacheSize) {
+        this.bookingRepository = bookingRepository;
+        this.mapper = mapper;
+        this.transactionTemplate = transactionTemplate;
+        this.filter = new RequestIdFilter(expectedInsertions, fpp);
+        this.cacheSize = cacheSize;
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BookingResponse> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        this.recentHits = lookups(meterRegistry, "recent");
+        this.filtered = lookups(meterRegistry, "filtered");
+        this.queried = lookups(meterRegistry, "queried");
+    }
+
+    @PostConstruct
+    void load() {
+        long loaded = transactionTemplate.execute(status -> {
+            try (Stream<String> requestIds = bookingRepository.streamRequestIds()) {
+                return requestIds.peek(filter::add).count();
+            }
+        });
+        List<BookingResponse> latest = transactionTemplate.execute(status ->
+                bookingRepository.findByOrderByIdDesc(Limit.of(cacheSize)).stream().map(mapper::toResponse).toList());
+        // oldest first, so the newest bookings end up most recently used
+        for (int i = latest.size() - 1; i >= 0; i--) {
+            remember(latest.get(i));
+        }
+        log.info("Idempotency index loaded: {} requestIds, {} recent results", loaded, latest.size());
+    }
+
+    public Optional<BookingResponse> recent(String requestId) {
+        BookingResponse booking;
+        synchronized (recent) {
+            booking = recent.get(requestId);
+        }
+        if (booking != null) {
+            recentHits.increment();
+        }
+        return Optional.ofNullable(booking);
+    }
+
+    public boolean mightExist(String requestId) {
+        boolean present = filter.mightContain(requestId);
+        (present ? queried : filtered).increment();
+        return present;
+    }
+
+    // Called with every committed state of a booking, so a cached result is never older than the row.
+    public void remember(BookingResponse booking) {
+        filter.add(booking.requestId());
+        synchronized (recent) {
+            recent.put(booking.requestId(), booking);
+        }
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("booking.idempotency.lookups").tag("result", result).register(meterRegistry);
+    }
+}
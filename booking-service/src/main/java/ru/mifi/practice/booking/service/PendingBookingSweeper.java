@@ -0,0 +1,51 @@
+package ru.mifi.practice.booking.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.mifi.practice.booking.model.BookingStatus;
+import ru.mifi.practice.booking.repository.BookingRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+// Re-queues bookings left PENDING by a full queue or a restart; confirmation is idempotent
+// by requestId in hotel-service, so picking up a booking that is still in progress is harmless.
+@Component
+@Slf4j
+public class PendingBookingSweeper {
+
+    private final BookingRepository bookingRepository;
+    private final BookingQueue bookingQueue;
+    private final Duration staleAfter;
+    private final int batchSize;
+
+    public PendingBookingSweeper(BookingRepository bookingRepository,
+                                 BookingQueue bookingQueue,
+                                 @Value("${booking.async.stale-after:2m}") Duration staleAfter,
+                                 @Value("${booking.async.sweep-batch-size:500}") int batchSize) {
+        this.bookingRepository = bookingRepository;
+        this.bookingQueue = bookingQueue;
+        this.staleAfter = staleAfter;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${booking.async.sweep-interval:30s}")
+    public void sweep() {
+        List<Long> stale = bookingRepository.findIdsByStatusCreatedBefore(
+                BookingStatus.PENDING, Instant.now().minus(staleAfter), Limit.of(batchSize));
+        int offered = 0;
+        for (Long id : stale) {
+            if (!bookingQueue.offer(id)) {
+                break;
+            }
+            offered++;
+        }
+        if (!stale.isEmpty()) {
+            log.info("Re-queued {} of {} stale PENDING bookings", offered, stale.size());
+        }
+    }
+}
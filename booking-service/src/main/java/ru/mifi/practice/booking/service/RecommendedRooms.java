@@ -0,0 +1,62 @@
+package ru.mifi.practice.booking.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import ru.mifi.practice.booking.client.HotelClient;
+import ru.mifi.practice.booking.client.dto.RoomRecommendation;
+import ru.mifi.practice.booking.security.JwtTokenService;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Auto-select asks hotel-service for the top rooms at most once per TTL: concurrent callers share
+// the in-flight request (Mono.cache coalesces subscribers) and the snapshot is reused until it
+// expires. A room that failed to confirm is skipped for the rest of its snapshot.
+@Component
+public class RecommendedRooms {
+
+    private static final String SERVICE_NAME = "booking-service";
+
+    private final Mono<Snapshot> shared;
+    private final AtomicReference<Snapshot> latest = new AtomicReference<>();
+
+    public RecommendedRooms(HotelClient hotelClient,
+                            JwtTokenService jwtTokenService,
+                            @Value("${booking.recommend.cache-size:10}") int cacheSize,
+                            @Value("${booking.recommend.ttl:2s}") Duration ttl) {
+        this.shared = Mono.defer(() -> hotelClient.recommend(jwtTokenService.generateService(SERVICE_NAME), cacheSize))
+                .map(rooms -> new Snapshot(rooms.stream().map(RoomRecommendation::id).toList(), ConcurrentHashMap.newKeySet()))
+                .doOnNext(latest::set)
+                .cache(snapshot -> ttl, error -> Duration.ZERO, () -> Duration.ZERO);
+    }
+
+    public Mono<Long> next() {
+        return shared.flatMap(snapshot -> {
+            if (snapshot.rooms().isEmpty()) {
+                return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "No rooms available"));
+            }
+            // every cached room failed: fall back to the top one rather than refusing the booking
+            Long roomId = snapshot.rooms().stream()
+                    .filter(id -> !snapshot.invalidated().contains(id))
+                    .findFirst()
+                    .orElse(snapshot.rooms().get(0));
+            return Mono.just(roomId);
+        });
+    }
+
+    public void invalidate(Long roomId) {
+        Snapshot snapshot = latest.get();
+        if (snapshot != null) {
+            snapshot.invalidated().add(roomId);
+        }
+    }
+
+    private record Snapshot(List<Long> rooms, Set<Long> invalidated) {
+    }
+}
@@ -0,0 +1,41 @@
+package ru.mifi.practice.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+// Hold releases are recorded in the same transaction that cancels the booking and sent to
+// hotel-service later by ReleaseOutboxDispatcher, so a failed call can never leak the hold.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReleaseOutbox {
+
+    private static final String INSERT_IF_ABSENT =
+            "insert into release_outbox (room_id, request_id, attempts, next_attempt_at, created_at) "
+                    + "select ?, ?, 0, ?, ? where not exists (select 1 from release_outbox where request_id = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(Long roomId, String requestId) {
+        Timestamp now = Timestamp.from(Instant.now());
+        try {
+            if (jdbcTemplate.update(INSERT_IF_ABSENT, roomId, requestId, now, now, requestId) == 0) {
+                return;
+            }
+        } catch (DuplicateKeyException ex) {
+            // A concurrent transaction queued the same release first. H2 undoes only the failed
+            // statement, so the caller's transaction carries on.
+            return;
+        }
+        log.info("Release queued: requestId={}, roomId={}", requestId, roomId);
+    }
+}
@@ -0,0 +1,147 @@
+package ru.mifi.practice.booking.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.mifi.practice.booking.client.HotelClient;
+import ru.mifi.practice.booking.model.ReleaseOutboxEntry;
+import ru.mifi.practice.booking.repository.ReleaseOutboxRepository;
+import ru.mifi.practice.booking.security.JwtTokenService;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Releases are idempotent on the hotel side, so a row sent twice (e.g. by two instances or after
+// a crash between the call and the delete) is harmless; rows are removed only once hotel-service
+// has acknowledged them.
+@Component
+@Slf4j
+public class ReleaseOutboxDispatcher {
+
+    private static final String SERVICE_NAME = "booking-service";
+
+    private final ReleaseOutboxRepository repository;
+    private final HotelClient hotelClient;
+    private final JwtTokenService jwtTokenService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int concurrency;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final AtomicLong backlog = new AtomicLong();
+    private final Timer latency;
+    private final Counter failures;
+
+    public ReleaseOutboxDispatcher(ReleaseOutboxRepository repository,
+                                   HotelClient hotelClient,
+                                   JwtTokenService jwtTokenService,
+                                   TransactionTemplate transactionTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${booking.release-outbox.batch-size:100}") int batchSize,
+                                   @Value("${booking.release-outbox.concurrency:8}") int concurrency,
+                                   @Value("${booking.release-outbox.initial-backoff:1s}") Duration initialBackoff,
+                                   @Value("${booking.release-outbox.max-backoff:5m}") Duration maxBackoff) {
+        this.repository = repository;
+        this.hotelClient = hotelClient;
+        this.jwtTokenService = jwtTokenService;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.latency = Timer.builder("booking.release.outbox.latency")
+                .description("Time from queuing a release to hotel-service acknowledging it")
+                .register(meterRegistry);
+        this.failures = Counter.builder("booking.release.outbox.failures")
+                .description("Release attempts that failed and were rescheduled")
+                .register(meterRegistry);
+        Gauge.builder("booking.release.outbox.backlog", backlog, AtomicLong::get)
+                .description("Releases waiting in the outbox")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${booking.release-outbox.poll-interval:1s}")
+    public void drain() {
+        List<ReleaseOutboxEntry> batch;
+        do {
+            batch = repository.findDue(Instant.now(), Limit.of(batchSize));
+            if (!batch.isEmpty()) {
+                dispatch(batch);
+            }
+        } while (batch.size() == batchSize);
+        backlog.set(repository.count());
+    }
+
+    private void dispatch(List<ReleaseOutboxEntry> batch) {
+        String token = jwtTokenService.generateService(SERVICE_NAME);
+        List<Outcome> outcomes = Flux.fromIterable(batch)
+                .flatMap(entry -> hotelClient.release(entry.getRoomId(), entry.getRequestId(), token)
+                        .then(Mono.just(new Outcome(entry, null)))
+                        .onErrorResume(ex -> Mono.just(new Outcome(entry, ex))), concurrency)
+                .collectList()
+                .block();
+        Instant now = Instant.now();
+        List<Long> done = new ArrayList<>();
+        List<ReleaseOutboxEntry> retry = new ArrayList<>();
+        for (Outcome outcome : outcomes) {
+            ReleaseOutboxEntry entry = outcome.entry();
+            if (outcome.error() == null) {
+                done.add(entry.getId());
+                latency.record(Duration.between(entry.getCreatedAt(), now));
+            } else if (isPermanent(outcome.error())) {
+                log.error("Release dropped: requestId={}, roomId={}, error={}",
+                        entry.getRequestId(), entry.getRoomId(), outcome.error().getMessage());
+                done.add(entry.getId());
+            } else {
+                failures.increment();
+                entry.setAttempts(entry.getAttempts() + 1);
+                entry.setNextAttemptAt(now.plus(backoff(entry.getAttempts())));
+                entry.setLastError(truncate(outcome.error().getMessage()));
+                retry.add(entry);
+                log.warn("Release failed: requestId={}, attempt={}, next at {}: {}",
+                        entry.getRequestId(), entry.getAttempts(), entry.getNextAttemptAt(), outcome.error().getMessage());
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            repository.deleteAllByIdInBatch(done);
+            repository.saveAll(retry);
+        });
+        log.info("Release outbox batch: {} released or dropped, {} rescheduled", done.size(), retry.size());
+    }
+
+    Duration backoff(int attempts) {
+        int shift = Math.min(attempts - 1, 20);
+        Duration delay = initialBackoff.multipliedBy(1L << shift);
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    // Malformed requests will never succeed; everything else (5xx, timeouts, auth hiccups) is retried.
+    private boolean isPermanent(Throwable error) {
+        return error instanceof WebClientResponseException ex
+                && (ex.getStatusCode().isSameCodeAs(HttpStatus.BAD_REQUEST) || ex.getStatusCode().isSameCodeAs(HttpStatus.NOT_FOUND));
+    }
+
+    private String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() <= 500 ? message : message.substring(0, 500);
+    }
+
+    private record Outcome(ReleaseOutboxEntry entry, Throwable error) {
+    }
+}
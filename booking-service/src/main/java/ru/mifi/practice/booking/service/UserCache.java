@@ -0,0 +1,56 @@
+package ru.mifi.practice.booking.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.mifi.practice.booking.model.User;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+// Users by username for authenticated requests, whose subject the JWT has already vouched for.
+// Misses are not cached, so a user registered after a failed lookup is found right away.
+// Entries are detached entities: fine as a foreign key reference, never to be modified.
+@Component
+public class UserCache {
+
+    private final Cache<String, User> users;
+
+    public UserCache(MeterRegistry meterRegistry,
+                     @Value("${booking.user-cache.max-size:10000}") long maxSize,
+                     @Value("${booking.user-cache.ttl:5m}") Duration ttl) {
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "users");
+        Gauge.builder("cache.hit.ratio", users, cache -> cache.stats().hitRate())
+                .tag("cache", "users")
+                .register(meterRegistry);
+    }
+
+    public Optional<User> get(String username, Function<String, User> loader) {
+        return Optional.ofNullable(users.get(username, loader));
+    }
+
+    // Evicting only before commit would let a concurrent reader cache the old row again.
+    public void evictAfterCommit(String username) {
+        users.invalidate(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    users.invalidate(username);
+                }
+            });
+        }
+    }
+}
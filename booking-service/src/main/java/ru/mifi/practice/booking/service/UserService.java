@@ -1,8 +1,8 @@
 package ru.mifi.practice.booking.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
@@ -13,59 +13,58 @@ import ru.mifi.practice.booking.model.Role;
 import ru.mifi.practice.booking.model.User;
 import ru.mifi.practice.booking.repository.UserRepository;
 import ru.mifi.practice.booking.security.JwtTokenService;
+import ru.mifi.practice.booking.security.PasswordHasher;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
     private final JwtTokenService jwtTokenService;
+    private final UserCache userCache;
 
-    @Transactional
+    // BCrypt runs on PasswordHasher's pool outside any transaction, so a login waiting for a
+    // hashing thread holds no JDBC connection; the unique username index still guards the
+    // check-then-insert.
     public AuthResponse register(AuthRequest request) {
-        if (userRepository.findByUsername(request.username()).isPresent()) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "User already exists");
-        }
+        requireNew(request.username());
         User user = User.builder()
                 .username(request.username())
-                .password(passwordEncoder.encode(request.password()))
+                .password(passwordHasher.encode(request.password()))
                 .role(Role.USER)
                 .build();
-        userRepository.save(user);
+        insert(user);
         return new AuthResponse(jwtTokenService.generate(user));
     }
 
-    @Transactional(readOnly = true)
     public AuthResponse authenticate(AuthRequest request) {
         User user = userRepository.findByUsername(request.username())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid credentials"));
-        if (!passwordEncoder.matches(request.password(), user.getPassword())) {
+        if (!passwordHasher.matches(request.password(), user.getPassword())) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid credentials");
         }
         return new AuthResponse(jwtTokenService.generate(user));
     }
 
-    @Transactional
     public User create(UserAdminRequest request) {
-        if (userRepository.findByUsername(request.username()).isPresent()) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "User already exists");
-        }
+        requireNew(request.username());
         User user = User.builder()
                 .username(request.username())
-                .password(passwordEncoder.encode(request.password()))
+                .password(passwordHasher.encode(request.password()))
                 .role(request.role())
                 .build();
-        return userRepository.save(user);
+        return insert(user);
     }
 
-    @Transactional
     public User update(UserAdminRequest request) {
         User user = userRepository.findByUsername(request.username())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
-        user.setPassword(passwordEncoder.encode(request.password()));
+        user.setPassword(passwordHasher.encode(request.password()));
         user.setRole(request.role());
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userCache.evictAfterCommit(user.getUsername());
+        return saved;
     }
 
     @Transactional
@@ -73,11 +72,32 @@ public class UserService {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
         userRepository.delete(user);
+        userCache.evictAfterCommit(username);
     }
 
     @Transactional(readOnly = true)
     public User getByUsername(String username) {
-        return userRepository.findByUsername(username)
+        return userCache.get(username, name -> userRepository.findByUsername(name).orElse(null))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
     }
+
+    // A concurrent registration of the same name passes requireNew and loses on the unique index.
+    private User insert(User user) {
+        try {
+            return userRepository.save(user);
+        } catch (DataIntegrityViolationException ex) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "User already exists");
+        }
+    }
+
+    private void requireNew(String username) {
+        if (userRepository.findByUsername(username).isPresent()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "User already exists");
+        }
+    }
+
+    // For tokens carrying the uid claim: a reference by id needs no query at all.
+    public User reference(Long userId) {
+        return userRepository.getReferenceById(userId);
+    }
 }
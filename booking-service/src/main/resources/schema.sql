@@ -1,6 +1,6 @@
 -- Create Users table
 CREATE TABLE IF NOT EXISTS users (
-    id BIGINT PRIMARY KEY,
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
     username VARCHAR(100) NOT NULL UNIQUE,
     password VARCHAR(255) NOT NULL,
     role VARCHAR(50) NOT NULL
@@ -8,15 +8,14 @@ CREATE TABLE IF NOT EXISTS users (
 
 -- Create Bookings table
 CREATE TABLE IF NOT EXISTS bookings (
-    id BIGINT PRIMARY KEY,
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
     user_id BIGINT NOT NULL,
-    room_id BIGINT NOT NULL,
-    hotel_id BIGINT NOT NULL,
-    check_in_date DATE NOT NULL,
-    check_out_date DATE NOT NULL,
+    room_id BIGINT,
+    start_date DATE NOT NULL,
+    end_date DATE NOT NULL,
     status VARCHAR(50) NOT NULL DEFAULT 'PENDING',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    confirmation_code VARCHAR(100),
+    request_id VARCHAR(255) NOT NULL UNIQUE,
     FOREIGN KEY (user_id) REFERENCES users(id)
 );
 
@@ -30,8 +29,20 @@ CREATE TABLE IF NOT EXISTS booking_confirmations (
     FOREIGN KEY (booking_id) REFERENCES bookings(id)
 );
 
+-- Create Release Outbox table (hold releases waiting to be sent to hotel-service)
+CREATE TABLE IF NOT EXISTS release_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    room_id BIGINT NOT NULL,
+    request_id VARCHAR(255) NOT NULL UNIQUE,
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL,
+    last_error VARCHAR(500),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
 -- Create indexes for better query performance
 CREATE INDEX IF NOT EXISTS idx_bookings_user_id ON bookings(user_id);
 CREATE INDEX IF NOT EXISTS idx_bookings_status ON bookings(status);
-CREATE INDEX IF NOT EXISTS idx_bookings_dates ON bookings(check_in_date, check_out_date);
+CREATE INDEX IF NOT EXISTS idx_bookings_dates ON bookings(start_date, end_date);
 CREATE INDEX IF NOT EXISTS idx_confirmations_booking_id ON booking_confirmations(booking_id);
+CREATE INDEX IF NOT EXISTS idx_release_outbox_due ON release_outbox(next_attempt_at);
@@ -0,0 +1,75 @@
+package ru.mifi.practice.booking.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private final AdaptiveConcurrencyLimit limit =
+            new AdaptiveConcurrencyLimit(new SimpleMeterRegistry(), 4, 2, 10, Duration.ofSeconds(1), 0.5);
+
+    @Test
+    void rejectsCallsAboveLimitWithoutSubscribing() {
+        Sinks.One<String> pending = Sinks.one();
+        for (int i = 0; i < 4; i++) {
+            limit.wrap(pending.asMono()).subscribe();
+        }
+
+        assertThrows(AdaptiveConcurrencyLimit.LimitExceededException.class,
+                () -> limit.wrap(Mono.fromCallable(() -> fail("must not be called"))).block());
+        assertEquals(4, limit.inFlight());
+        assertEquals(1.0, limit.rejected());
+
+        pending.tryEmitValue("ok");
+        assertEquals(0, limit.inFlight());
+    }
+
+    @Test
+    void fastSuccessesGrowLimitAdditively() {
+        for (int i = 0; i < 20; i++) {
+            limit.wrap(Mono.just("ok")).block();
+        }
+
+        assertTrue(limit.limit() > 4);
+        assertTrue(limit.limit() <= 10);
+    }
+
+    @Test
+    void serverErrorsShrinkLimitDownToMinimum() {
+        for (int i = 0; i < 5; i++) {
+            limit.wrap(Mono.error(WebClientResponseException.create(503, "Unavailable", null, null, null)))
+                    .onErrorResume(ex -> Mono.empty())
+                    .block();
+        }
+
+        assertEquals(2, limit.limit());
+    }
+
+    @Test
+    void clientErrorsDoNotChangeLimit() {
+        limit.wrap(Mono.error(WebClientResponseException.create(HttpStatus.CONFLICT.value(), "Conflict", null, null, null)))
+                .onErrorResume(ex -> Mono.empty())
+                .block();
+
+        assertEquals(4, limit.limit());
+        assertEquals(0, limit.inFlight());
+    }
+
+    @Test
+    void slowSuccessShrinksLimit() {
+        AdaptiveConcurrencyLimit tight =
+                new AdaptiveConcurrencyLimit(new SimpleMeterRegistry(), 4, 2, 10, Duration.ofMillis(10), 0.5);
+
+        tight.wrap(Mono.delay(Duration.ofMillis(50)).thenReturn("ok")).block();
+
+        assertEquals(2, tight.limit());
+    }
+}
@@ -0,0 +1,73 @@
+package ru.mifi.practice.booking.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgingPolicyTest {
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    @Test
+    void slowPrimaryIsHedgedAndCancelled() {
+        HedgingPolicy policy = policy(1.0);
+        AtomicBoolean primaryCancelled = new AtomicBoolean();
+        Mono<String> attempt = Mono.defer(() -> attempts.incrementAndGet() == 1
+                ? Mono.<String>never().doOnCancel(() -> primaryCancelled.set(true))
+                : Mono.just("backup"));
+
+        assertEquals("backup", policy.hedge(attempt).block(Duration.ofSeconds(1)));
+        assertEquals(2, attempts.get());
+        assertTrue(primaryCancelled.get());
+        assertEquals(1.0, policy.hedgesWon());
+    }
+
+    @Test
+    void hedgesStayWithinBudget() {
+        HedgingPolicy policy = policy(0.2);
+        Mono<String> attempt = Mono.delay(Duration.ofMillis(30)).thenReturn("ok");
+
+        for (int i = 0; i < 10; i++) {
+            policy.hedge(attempt).block(Duration.ofSeconds(1));
+        }
+
+        assertEquals(2.0, policy.hedgesSent());
+    }
+
+    @Test
+    void fastFailureIsNotHedgedAndKeepsItsError() {
+        HedgingPolicy policy = policy(1.0);
+        Mono<String> attempt = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(WebClientResponseException.create(503, "Unavailable", null, null, null));
+        });
+
+        assertThrows(WebClientResponseException.class, () -> policy.hedge(attempt).block(Duration.ofSeconds(1)));
+        assertEquals(1, attempts.get());
+        assertEquals(0.0, policy.hedgesSent());
+    }
+
+    @Test
+    void delayFollowsRecentLatencies() {
+        HedgingPolicy policy = new HedgingPolicy(new SimpleMeterRegistry(), true, 0.95,
+                Duration.ofMillis(1), Duration.ofSeconds(1), 0.1, 32);
+
+        for (int i = 0; i < 32; i++) {
+            policy.hedge(Mono.just("ok")).block();
+        }
+
+        assertEquals(Duration.ofMillis(1), policy.delay());
+    }
+
+    private static HedgingPolicy policy(double maxRatio) {
+        return new HedgingPolicy(new SimpleMeterRegistry(), true, 0.95,
+                Duration.ofMillis(5), Duration.ofMillis(5), maxRatio, 64);
+    }
+}
@@ -10,13 +10,23 @@ import org.springframework.http.MediaType;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
 import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.List;
+import ru.mifi.practice.booking.dto.BookingResponse;
+import ru.mifi.practice.booking.model.BookingStatus;
+import ru.mifi.practice.booking.security.InternalIdentity;
 import ru.mifi.practice.booking.security.SecurityConfig;
+import ru.mifi.practice.booking.service.BookingEvents;
 import ru.mifi.practice.booking.service.BookingWorkflowService;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@WebMvcTest(controllers = BookingController.class)
+@WebMvcTest(controllers = BookingController.class, properties = {
+        "security.internal-identity.enabled=true",
+        "security.internal-identity.secret=booking-controller-test-secret-32b"
+})
 @Import(SecurityConfig.class)
 class BookingControllerSecurityTest {
 
@@ -29,6 +39,12 @@ class BookingControllerSecurityTest {
     @MockBean
     JwtDecoder jwtDecoder; // stub for security
 
+    @MockBean
+    BookingEvents bookingEvents;
+
+    @Autowired
+    InternalIdentity internalIdentity;
+
     @Test
     void unauthorizedWithoutToken() throws Exception {
         mockMvc.perform(get("/booking/1"))
@@ -44,4 +60,23 @@ class BookingControllerSecurityTest {
                         .with(SecurityMockMvcRequestPostProcessors.jwt().jwt(jwt -> jwt.subject("user"))))
                 .andExpect(status().isForbidden());
     }
+
+    @Test
+    void acceptsInternalIdentityWithoutDecodingJwt() throws Exception {
+        Mockito.when(bookingWorkflowService.getById(1L, "alice", false))
+                .thenReturn(new BookingResponse(1L, 7L, null, null, BookingStatus.CONFIRMED, null, "r1"));
+        String identity = internalIdentity.sign("alice", 5L, List.of("USER"), Instant.now().plusSeconds(30));
+
+        mockMvc.perform(get("/booking/1").header(InternalIdentity.HEADER, identity))
+                .andExpect(status().isOk());
+        Mockito.verifyNoInteractions(jwtDecoder);
+    }
+
+    @Test
+    void rejectsTamperedInternalIdentity() throws Exception {
+        String identity = internalIdentity.sign("alice", 5L, List.of("USER"), Instant.now().plusSeconds(30));
+
+        mockMvc.perform(get("/booking/1").header(InternalIdentity.HEADER, identity.replace(".USER.", ".ADMIN.")))
+                .andExpect(status().isUnauthorized());
+    }
 }
@@ -0,0 +1,56 @@
+package ru.mifi.practice.booking.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CachingJwtAuthenticationManagerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final JwtDecoder jwtDecoder = mock(JwtDecoder.class);
+    private final CachingJwtAuthenticationManager manager = new CachingJwtAuthenticationManager(
+            jwtDecoder, new SecurityConfig().jwtAuthenticationConverter(), meterRegistry, 100);
+
+    @Test
+    void decodesTokenOnceUntilExpiry() {
+        when(jwtDecoder.decode("token")).thenReturn(jwt("token", Instant.now().plusSeconds(60)));
+
+        Authentication first = manager.authenticate(new BearerTokenAuthenticationToken("token"));
+        Authentication second = manager.authenticate(new BearerTokenAuthenticationToken("token"));
+
+        verify(jwtDecoder, times(1)).decode("token");
+        assertNotSame(first, second);
+        assertEquals("alice", second.getName());
+        assertTrue(second.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_USER")));
+        assertEquals(0.5, meterRegistry.get("cache.hit.ratio").tag("cache", "jwt").gauge().value());
+    }
+
+    @Test
+    void expiredEntriesAreDecodedAgain() {
+        when(jwtDecoder.decode("token")).thenReturn(jwt("token", Instant.now().minusSeconds(1)));
+
+        manager.authenticate(new BearerTokenAuthenticationToken("token"));
+        manager.authenticate(new BearerTokenAuthenticationToken("token"));
+
+        verify(jwtDecoder, times(2)).decode("token");
+    }
+
+    private static Jwt jwt(String value, Instant expiresAt) {
+        return Jwt.withTokenValue(value)
+                .header("alg", "HS256")
+                .subject("alice")
+                .claim("roles", List.of("USER"))
+                .issuedAt(expiresAt.minusSeconds(3600))
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
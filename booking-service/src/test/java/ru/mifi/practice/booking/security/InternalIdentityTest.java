@@ -0,0 +1,49 @@
+package ru.mifi.practice.booking.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InternalIdentityTest {
+
+    private final InternalIdentity internalIdentity = new InternalIdentity("internal-identity-test-secret-32b", Duration.ofSeconds(60));
+
+    @Test
+    void roundTripsClaimsAndCapsExpiry() {
+        Instant tokenExpiry = Instant.now().plusSeconds(3600);
+        String identity = internalIdentity.sign("al.ice", 5L, List.of("USER", "ADMIN"), tokenExpiry);
+
+        Jwt jwt = internalIdentity.verify(identity).orElseThrow();
+
+        assertEquals("al.ice", jwt.getSubject());
+        assertEquals(5L, jwt.<Long>getClaim(JwtTokenService.USER_ID_CLAIM));
+        assertEquals(List.of("USER", "ADMIN"), jwt.getClaimAsStringList("roles"));
+        assertTrue(jwt.getExpiresAt().isBefore(Instant.now().plusSeconds(61)));
+    }
+
+    @Test
+    void rejectsForeignSignatureExpiryAndJwts() {
+        String foreign = new InternalIdentity("other-internal-identity-secret-32b", Duration.ofSeconds(60))
+                .sign("alice", null, List.of("USER"), null);
+        String expired = internalIdentity.sign("alice", null, List.of("USER"), Instant.now().minusSeconds(1));
+
+        assertTrue(internalIdentity.verify(foreign).isEmpty());
+        assertTrue(internalIdentity.verify(expired).isEmpty());
+        assertTrue(internalIdentity.verify("eyJhbGciOiJIUzI1NiJ9.e30.sig").isEmpty());
+        assertTrue(internalIdentity.verify("v1.").isEmpty());
+        assertTrue(internalIdentity.verify(internalIdentity.sign("alice", null, List.of(), null))
+                .orElseThrow().getClaimAsStringList("roles").isEmpty());
+    }
+
+    @Test
+    void refusesBlankOrShortSecret() {
+        assertThrows(IllegalArgumentException.class, () -> new InternalIdentity(null, Duration.ofSeconds(60)));
+        assertThrows(IllegalArgumentException.class, () -> new InternalIdentity(" ".repeat(40), Duration.ofSeconds(60)));
+        assertThrows(IllegalArgumentException.class, () -> new InternalIdentity("too-short", Duration.ofSeconds(60)));
+    }
+}
@@ -0,0 +1,123 @@
+package ru.mifi.practice.booking.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import ru.mifi.practice.booking.client.HotelClient;
+import ru.mifi.practice.booking.client.dto.AvailabilityResponse;
+import ru.mifi.practice.booking.mapper.BookingMapperImpl;
+import ru.mifi.practice.booking.model.Booking;
+import ru.mifi.practice.booking.model.BookingStatus;
+import ru.mifi.practice.booking.model.Role;
+import ru.mifi.practice.booking.model.User;
+import ru.mifi.practice.booking.repository.BookingRepository;
+import ru.mifi.practice.booking.repository.ReleaseOutboxRepository;
+import ru.mifi.practice.booking.repository.UserRepository;
+import ru.mifi.practice.booking.security.JwtTokenService;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// Real transactions on H2: the worker's confirmation is held open at hotel-service while the user cancels.
+@DataJpaTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:booking-cancel-race;DB_CLOSE_DELAY=-1;MODE=LEGACY"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ReleaseOutbox.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookingCancelRaceTest {
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ReleaseOutboxRepository outboxRepository;
+
+    @Autowired
+    private ReleaseOutbox releaseOutbox;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final HotelClient hotelClient = mock(HotelClient.class);
+    private final Sinks.One<AvailabilityResponse> confirmation = Sinks.one();
+    private BookingWorkflowService bookingService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        JwtTokenService jwtTokenService = mock(JwtTokenService.class);
+        when(jwtTokenService.generateService(any())).thenReturn("service-token");
+        bookingService = new BookingWorkflowService(bookingRepository, mock(UserService.class), hotelClient, releaseOutbox,
+                mock(BookingQueue.class), mock(BookingEvents.class), mock(IdempotencyIndex.class),
+                mock(RecommendedRooms.class), jwtTokenService, new BookingMapperImpl(),
+                new TransactionTemplate(transactionManager), Schedulers.immediate());
+        user = userRepository.save(User.builder()
+                .username("race-" + UUID.randomUUID())
+                .password("x")
+                .role(Role.USER)
+                .build());
+        when(hotelClient.confirmAvailability(any(), any(), any(), any(), any())).thenReturn(confirmation.asMono());
+        when(hotelClient.commit(any(), any(), any())).thenAnswer(invocation ->
+                Mono.just(new AvailabilityResponse(true, invocation.getArgument(1))));
+    }
+
+    @Test
+    void cancelDuringConfirmationWinsAndWorkerReleasesHold() {
+        Booking booking = pending();
+        CompletableFuture<Void> worker = bookingService.process(booking.getId()).toFuture();
+
+        bookingService.cancel(booking.getId(), user.getUsername(), false).block();
+        // the hold may not exist yet, so the cancel itself sends nothing
+        assertFalse(outboxRepository.existsByRequestId(booking.getRequestId()));
+
+        confirmation.tryEmitValue(new AvailabilityResponse(true, booking.getRequestId()));
+        worker.join();
+
+        assertEquals(BookingStatus.CANCELLED, bookingRepository.findById(booking.getId()).orElseThrow().getStatus());
+        assertTrue(outboxRepository.existsByRequestId(booking.getRequestId()));
+    }
+
+    @Test
+    void cancelAfterConfirmationReleasesHold() {
+        Booking booking = pending();
+        confirmation.tryEmitValue(new AvailabilityResponse(true, booking.getRequestId()));
+        bookingService.process(booking.getId()).block();
+        assertEquals(BookingStatus.CONFIRMED, bookingRepository.findById(booking.getId()).orElseThrow().getStatus());
+
+        bookingService.cancel(booking.getId(), user.getUsername(), false).block();
+
+        assertEquals(BookingStatus.CANCELLED, bookingRepository.findById(booking.getId()).orElseThrow().getStatus());
+        assertTrue(outboxRepository.existsByRequestId(booking.getRequestId()));
+    }
+
+    private Booking pending() {
+        return bookingRepository.save(Booking.builder()
+                .user(user)
+                .roomId(5L)
+                .startDate(LocalDate.now().plusDays(1))
+                .endDate(LocalDate.now().plusDays(2))
+                .status(BookingStatus.PENDING)
+                .requestId("race-" + UUID.randomUUID())
+                .build());
+    }
+}
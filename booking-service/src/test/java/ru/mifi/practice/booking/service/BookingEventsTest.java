@@ -0,0 +1,76 @@
+package ru.mifi.practice.booking.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.mifi.practice.booking.dto.BookingResponse;
+import ru.mifi.practice.booking.model.BookingStatus;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingEventsTest {
+
+    private static final Duration WAIT = Duration.ofSeconds(5);
+
+    private final AtomicReference<BookingStatus> stored = new AtomicReference<>(BookingStatus.PENDING);
+    private final Mono<BookingResponse> read = Mono.fromCallable(() -> booking(stored.get()));
+
+    @Test
+    void streamEndsWhenTheRowIsFinishedElsewhere() {
+        BookingEvents events = new BookingEvents(Duration.ofMillis(20), Duration.ofHours(1), Duration.ofMinutes(1));
+        Mono.delay(Duration.ofMillis(100)).subscribe(tick -> stored.set(BookingStatus.CONFIRMED));
+
+        List<BookingStatus> statuses = events.follow(1L, read).map(BookingResponse::status).collectList().block(WAIT);
+
+        assertEquals(List.of(BookingStatus.PENDING, BookingStatus.CONFIRMED), statuses);
+    }
+
+    @Test
+    void streamEndsOnLiveChange() {
+        BookingEvents events = new BookingEvents(Duration.ofHours(1), Duration.ofHours(1), Duration.ofMinutes(1));
+        Mono.delay(Duration.ofMillis(100)).subscribe(tick -> {
+            events.publish(booking(2L, BookingStatus.CONFIRMED));
+            events.publish(booking(BookingStatus.CANCELLED));
+        });
+
+        List<BookingStatus> statuses = events.follow(1L, read).map(BookingResponse::status).collectList().block(WAIT);
+
+        assertEquals(List.of(BookingStatus.PENDING, BookingStatus.CANCELLED), statuses);
+    }
+
+    @Test
+    void pendingStreamGivesUpAfterTimeout() {
+        BookingEvents events = new BookingEvents(Duration.ofMillis(20), Duration.ofHours(1), Duration.ofMillis(200));
+
+        List<BookingStatus> statuses = events.follow(1L, read).map(BookingResponse::status).collectList().block(WAIT);
+
+        assertEquals(List.of(BookingStatus.PENDING), statuses);
+    }
+
+    @Test
+    void heartbeatsRunOnlyWhileTheStreamIsOpen() {
+        BookingEvents events = new BookingEvents(Duration.ofHours(1), Duration.ofMillis(20), Duration.ofMinutes(1));
+        Flux<String> stream = Flux.just("first").concatWith(Mono.delay(Duration.ofMillis(200)).thenReturn("last"));
+
+        List<String> items = events.withHeartbeat(stream, "heartbeat").collectList().block(WAIT);
+
+        assertEquals("first", items.get(0));
+        assertEquals("last", items.get(items.size() - 1));
+        assertTrue(items.subList(1, items.size() - 1).stream().allMatch("heartbeat"::equals));
+        assertTrue(items.size() > 3);
+    }
+
+    private static BookingResponse booking(BookingStatus status) {
+        return booking(1L, status);
+    }
+
+    private static BookingResponse booking(Long id, BookingStatus status) {
+        LocalDate day = LocalDate.of(2030, 1, 10);
+        return new BookingResponse(id, 1L, day, day.plusDays(1), status, null, "request-" + id);
+    }
+}
@@ -3,14 +3,16 @@ package ru.mifi.practice.booking.service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import ru.mifi.practice.booking.client.HotelClient;
 import ru.mifi.practice.booking.client.dto.AvailabilityResponse;
-import ru.mifi.practice.booking.client.dto.RoomRecommendation;
 import ru.mifi.practice.booking.dto.BookingRequest;
 import ru.mifi.practice.booking.dto.BookingResponse;
 import ru.mifi.practice.booking.mapper.BookingMapper;
@@ -19,9 +21,9 @@ import ru.mifi.practice.booking.model.BookingStatus;
 import ru.mifi.practice.booking.model.Role;
 import ru.mifi.practice.booking.model.User;
 import ru.mifi.practice.booking.repository.BookingRepository;
+import ru.mifi.practice.booking.security.JwtTokenService;
 
 import java.time.LocalDate;
-import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -45,7 +47,24 @@ class BookingWorkflowServiceTest {
     @Mock
     private BookingMapper mapper;
 
-    @InjectMocks
+    @Mock
+    private ReleaseOutbox releaseOutbox;
+
+    @Mock
+    private BookingQueue bookingQueue;
+
+    @Mock
+    private BookingEvents bookingEvents;
+
+    @Mock
+    private JwtTokenService jwtTokenService;
+
+    @Mock
+    private RecommendedRooms recommendedRooms;
+
+    @Mock
+    private IdempotencyIndex idempotencyIndex;
+
     private BookingWorkflowService bookingService;
 
     private User testUser;
@@ -54,6 +73,12 @@ class BookingWorkflowServiceTest {
 
     @BeforeEach
     void setUp() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        bookingService = new BookingWorkflowService(bookingRepository, userService, hotelClient, releaseOutbox,
+                bookingQueue, bookingEvents, idempotencyIndex, recommendedRooms, jwtTokenService, mapper,
+                transactionTemplate, Schedulers.immediate());
+        lenient().when(idempotencyIndex.mightExist(any())).thenReturn(true);
+
         testUser = new User();
         testUser.setId(1L);
         testUser.setUsername("testuser");
@@ -91,20 +116,24 @@ class BookingWorkflowServiceTest {
             return b;
         });
         when(hotelClient.confirmAvailability(eq(1L), any(), any(), any(), any()))
-                .thenReturn(new AvailabilityResponse(true, "test-request-id"));
+                .thenReturn(Mono.just(new AvailabilityResponse(true, "test-request-id")));
+        when(hotelClient.commit(any(), any(), eq("token")))
+                .thenReturn(Mono.just(new AvailabilityResponse(true, "test-request-id")));
+        when(bookingRepository.transition(1L, BookingStatus.PENDING, BookingStatus.CONFIRMED)).thenReturn(1);
         when(mapper.toResponse(any(Booking.class))).thenAnswer(invocation -> {
             Booking b = invocation.getArgument(0);
             return new BookingResponse(b.getId(), b.getRoomId(), b.getStartDate(), 
                     b.getEndDate(), b.getStatus(), b.getCreatedAt(), b.getRequestId());
         });
 
-        BookingResponse response = bookingService.createBooking(validRequest, "testuser", "token");
+        BookingResponse response = bookingService.createBooking(validRequest, "testuser", null, "token").block();
 
         assertNotNull(response);
-        verify(bookingRepository, times(2)).save(bookingCaptor.capture());
+        verify(bookingRepository).save(bookingCaptor.capture());
         verify(hotelClient).confirmAvailability(eq(1L), any(), any(), any(), any());
-        List<Booking> savedBookings = bookingCaptor.getAllValues();
-        assertEquals(BookingStatus.CONFIRMED, savedBookings.get(1).getStatus());
+        verify(hotelClient).commit(eq(1L), any(), eq("token"));
+        assertEquals(BookingStatus.CONFIRMED, response.status());
+        verify(releaseOutbox, never()).enqueue(any(), any());
     }
 
     @Test
@@ -120,16 +149,18 @@ class BookingWorkflowServiceTest {
             return b;
         });
         when(hotelClient.confirmAvailability(eq(1L), any(), any(), any(), any()))
-                .thenThrow(new RuntimeException("Service unavailable"));
+                .thenReturn(Mono.error(new RuntimeException("Service unavailable")));
+        when(bookingRepository.transition(1L, BookingStatus.PENDING, BookingStatus.CANCELLED)).thenReturn(1);
 
         assertThrows(ResponseStatusException.class, () -> {
-            bookingService.createBooking(validRequest, "testuser", "token");
+            bookingService.createBooking(validRequest, "testuser", null, "token").block();
         });
 
-        verify(bookingRepository, times(2)).save(bookingCaptor.capture());
-        verify(hotelClient).release(eq(1L), any(), eq("token"));
-        List<Booking> savedBookings = bookingCaptor.getAllValues();
-        assertEquals(BookingStatus.CANCELLED, savedBookings.get(1).getStatus());
+        verify(bookingRepository).save(bookingCaptor.capture());
+        verify(releaseOutbox).enqueue(eq(1L), any());
+        verify(recommendedRooms).invalidate(1L);
+        verify(hotelClient, never()).release(any(), any(), any());
+        assertEquals(BookingStatus.CANCELLED, bookingCaptor.getValue().getStatus());
     }
 
     @Test
@@ -156,22 +187,81 @@ class BookingWorkflowServiceTest {
                 "existing-request-id"
         );
 
-        BookingResponse response = bookingService.createBooking(requestWithId, "testuser", "token");
+        BookingResponse response = bookingService.createBooking(requestWithId, "testuser", null, "token").block();
 
         assertNotNull(response);
         verify(bookingRepository, never()).save(any(Booking.class));
         verify(hotelClient, never()).confirmAvailability(any(), any(), any(), any(), any());
     }
 
+    @Test
+    void testCreateBooking_RecentRetrySkipsDatabase() {
+        BookingResponse cached = new BookingResponse(2L, 1L, validRequest.startDate(), validRequest.endDate(),
+                BookingStatus.CONFIRMED, null, "existing-request-id");
+        when(idempotencyIndex.recent("existing-request-id")).thenReturn(Optional.of(cached));
+
+        BookingRequest requestWithId = new BookingRequest(1L, false, validRequest.startDate(), validRequest.endDate(),
+                "existing-request-id");
+
+        BookingResponse response = bookingService.createBooking(requestWithId, "testuser", null, "token").block();
+
+        assertEquals(cached, response);
+        verifyNoInteractions(bookingRepository, userService, hotelClient);
+    }
+
+    @Test
+    void testCreateBooking_FilteredRequestIdSkipsLookup() {
+        when(idempotencyIndex.mightExist(any())).thenReturn(false);
+        when(userService.getByUsername("testuser")).thenReturn(testUser);
+        when(bookingRepository.save(any(Booking.class))).thenReturn(savedBooking);
+        when(hotelClient.confirmAvailability(eq(1L), any(), any(), any(), any()))
+                .thenReturn(Mono.just(new AvailabilityResponse(true, "test-request-id")));
+        when(hotelClient.commit(any(), any(), eq("token")))
+                .thenReturn(Mono.just(new AvailabilityResponse(true, "test-request-id")));
+        when(bookingRepository.transition(any(), eq(BookingStatus.PENDING), eq(BookingStatus.CONFIRMED))).thenReturn(1);
+        when(mapper.toResponse(any(Booking.class))).thenAnswer(invocation -> {
+            Booking b = invocation.getArgument(0);
+            return new BookingResponse(b.getId(), b.getRoomId(), b.getStartDate(),
+                    b.getEndDate(), b.getStatus(), b.getCreatedAt(), b.getRequestId());
+        });
+
+        BookingResponse response = bookingService.createBooking(validRequest, "testuser", null, "token").block();
+
+        assertEquals(BookingStatus.CONFIRMED, response.status());
+        verify(bookingRepository, never()).findByRequestId(any());
+        verify(idempotencyIndex, atLeastOnce()).remember(any());
+    }
+
+    @Test
+    void testCreateBooking_UserIdClaimSkipsUserLookup() {
+        when(userService.reference(1L)).thenReturn(testUser);
+        when(bookingRepository.findByRequestId(any())).thenReturn(Optional.empty());
+        when(bookingRepository.save(any(Booking.class))).thenReturn(savedBooking);
+        when(hotelClient.confirmAvailability(eq(1L), any(), any(), any(), any()))
+                .thenReturn(Mono.just(new AvailabilityResponse(true, "test-request-id")));
+        when(hotelClient.commit(any(), any(), eq("token")))
+                .thenReturn(Mono.just(new AvailabilityResponse(true, "test-request-id")));
+        when(bookingRepository.transition(any(), eq(BookingStatus.PENDING), eq(BookingStatus.CONFIRMED))).thenReturn(1);
+
+        bookingService.createBooking(validRequest, "testuser", 1L, "token").block();
+
+        verify(userService, never()).getByUsername(any());
+        ArgumentCaptor<Booking> bookingCaptor = ArgumentCaptor.forClass(Booking.class);
+        verify(bookingRepository, atLeastOnce()).save(bookingCaptor.capture());
+        assertSame(testUser, bookingCaptor.getAllValues().get(0).getUser());
+    }
+
     @Test
     void testCreateBooking_AutoSelect() {
         when(userService.getByUsername("testuser")).thenReturn(testUser);
         when(bookingRepository.findByRequestId(any())).thenReturn(Optional.empty());
-        when(hotelClient.recommend("token")).thenReturn(
-                List.of(new RoomRecommendation(5L, 1L, "101", true, 0)));
+        when(recommendedRooms.next()).thenReturn(Mono.just(5L));
         when(bookingRepository.save(any(Booking.class))).thenReturn(savedBooking);
         when(hotelClient.confirmAvailability(eq(5L), any(), any(), any(), any()))
-                .thenReturn(new AvailabilityResponse(true, "test-request-id"));
+                .thenReturn(Mono.just(new AvailabilityResponse(true, "test-request-id")));
+        when(hotelClient.commit(any(), any(), eq("token")))
+                .thenReturn(Mono.just(new AvailabilityResponse(true, "test-request-id")));
+        when(bookingRepository.transition(any(), eq(BookingStatus.PENDING), eq(BookingStatus.CONFIRMED))).thenReturn(1);
         when(mapper.toResponse(any(Booking.class))).thenAnswer(invocation -> {
             Booking b = invocation.getArgument(0);
             return new BookingResponse(b.getId(), b.getRoomId(), b.getStartDate(), 
@@ -186,10 +276,10 @@ class BookingWorkflowServiceTest {
                 null
         );
 
-        BookingResponse response = bookingService.createBooking(autoRequest, "testuser", "token");
+        BookingResponse response = bookingService.createBooking(autoRequest, "testuser", null, "token").block();
 
         assertNotNull(response);
-        verify(hotelClient).recommend("token");
+        verify(recommendedRooms).next();
         verify(hotelClient).confirmAvailability(eq(5L), any(), any(), any(), any());
     }
 
@@ -204,7 +294,62 @@ class BookingWorkflowServiceTest {
         );
 
         assertThrows(ResponseStatusException.class, () -> {
-            bookingService.createBooking(invalidRequest, "testuser", "token");
+            bookingService.createBooking(invalidRequest, "testuser", null, "token").block();
+        });
+    }
+
+    @Test
+    void testSubmitBooking_QueuesPendingWithoutCallingHotel() {
+        when(userService.getByUsername("testuser")).thenReturn(testUser);
+        when(bookingRepository.findByRequestId(any())).thenReturn(Optional.empty());
+        when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> {
+            Booking b = invocation.getArgument(0);
+            b.setId(7L);
+            return b;
+        });
+        when(mapper.toResponse(any(Booking.class))).thenAnswer(invocation -> {
+            Booking b = invocation.getArgument(0);
+            return new BookingResponse(b.getId(), b.getRoomId(), b.getStartDate(),
+                    b.getEndDate(), b.getStatus(), b.getCreatedAt(), b.getRequestId());
         });
+
+        BookingResponse response = bookingService.submitBooking(validRequest, "testuser", null).block();
+
+        assertNotNull(response);
+        assertEquals(BookingStatus.PENDING, response.status());
+        verify(bookingQueue).offer(7L);
+        verifyNoInteractions(hotelClient);
+    }
+
+    @Test
+    void testProcess_AssignsRoomAndConfirms() {
+        Booking pending = Booking.builder()
+                .id(7L)
+                .user(testUser)
+                .startDate(validRequest.startDate())
+                .endDate(validRequest.endDate())
+                .status(BookingStatus.PENDING)
+                .requestId("async-request-id")
+                .build();
+        when(jwtTokenService.generateService("booking-service")).thenReturn("service-token");
+        when(bookingRepository.findById(7L)).thenReturn(Optional.of(pending));
+        when(bookingRepository.assignRoom(7L, 5L)).thenReturn(1);
+        when(bookingRepository.transition(7L, BookingStatus.PENDING, BookingStatus.CONFIRMED)).thenReturn(1);
+        when(recommendedRooms.next()).thenReturn(Mono.just(5L));
+        when(hotelClient.confirmAvailability(eq(5L), any(), any(), eq("async-request-id"), eq("service-token")))
+                .thenReturn(Mono.just(new AvailabilityResponse(true, "async-request-id")));
+        when(hotelClient.commit(5L, "async-request-id", "service-token"))
+                .thenReturn(Mono.just(new AvailabilityResponse(true, "async-request-id")));
+        when(mapper.toResponse(any(Booking.class))).thenAnswer(invocation -> {
+            Booking b = invocation.getArgument(0);
+            return new BookingResponse(b.getId(), b.getRoomId(), b.getStartDate(),
+                    b.getEndDate(), b.getStatus(), b.getCreatedAt(), b.getRequestId());
+        });
+
+        bookingService.process(7L).block();
+
+        assertEquals(5L, pending.getRoomId());
+        assertEquals(BookingStatus.CONFIRMED, pending.getStatus());
+        verify(bookingEvents, times(2)).publish(any());
     }
 }
@@ -0,0 +1,88 @@
+package ru.mifi.practice.booking.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.mifi.practice.booking.client.HotelClient;
+import ru.mifi.practice.booking.client.dto.RoomRecommendation;
+import ru.mifi.practice.booking.security.JwtTokenService;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecommendedRoomsTest {
+
+    @Mock
+    private HotelClient hotelClient;
+
+    @Mock
+    private JwtTokenService jwtTokenService;
+
+    @BeforeEach
+    void setUp() {
+        when(jwtTokenService.generateService("booking-service")).thenReturn("service-token");
+    }
+
+    @Test
+    void concurrentCallersShareOneRequest() {
+        when(hotelClient.recommend("service-token", 10))
+                .thenReturn(Mono.delay(Duration.ofMillis(100)).thenReturn(rooms(5L, 6L)));
+        RecommendedRooms recommendedRooms = new RecommendedRooms(hotelClient, jwtTokenService, 10, Duration.ofMinutes(1));
+
+        List<Long> picked = Flux.range(0, 20)
+                .flatMap(i -> recommendedRooms.next())
+                .collectList()
+                .block();
+
+        assertEquals(20, picked.size());
+        assertTrue(picked.stream().allMatch(id -> id == 5L));
+        verify(hotelClient, times(1)).recommend(any(), eq(10));
+    }
+
+    @Test
+    void expiredSnapshotIsRefetched() {
+        when(hotelClient.recommend("service-token", 10)).thenReturn(Mono.just(rooms(5L)));
+        RecommendedRooms recommendedRooms = new RecommendedRooms(hotelClient, jwtTokenService, 10, Duration.ZERO);
+
+        recommendedRooms.next().block();
+        recommendedRooms.next().block();
+
+        verify(hotelClient, times(2)).recommend(any(), eq(10));
+    }
+
+    @Test
+    void failedRoomIsSkippedUntilEveryRoomFailed() {
+        when(hotelClient.recommend("service-token", 10)).thenReturn(Mono.just(rooms(5L, 6L)));
+        RecommendedRooms recommendedRooms = new RecommendedRooms(hotelClient, jwtTokenService, 10, Duration.ofMinutes(1));
+
+        assertEquals(5L, recommendedRooms.next().block());
+        recommendedRooms.invalidate(5L);
+        assertEquals(6L, recommendedRooms.next().block());
+        recommendedRooms.invalidate(6L);
+        assertEquals(5L, recommendedRooms.next().block());
+    }
+
+    @Test
+    void emptyRecommendationIsNotFound() {
+        when(hotelClient.recommend("service-token", 10)).thenReturn(Mono.just(List.of()));
+        RecommendedRooms recommendedRooms = new RecommendedRooms(hotelClient, jwtTokenService, 10, Duration.ofMinutes(1));
+
+        assertThrows(ResponseStatusException.class, () -> recommendedRooms.next().block());
+    }
+
+    private List<RoomRecommendation> rooms(Long... ids) {
+        return Arrays.stream(ids).map(id -> new RoomRecommendation(id, 1L, "10" + id, true, 0)).toList();
+    }
+}
@@ -0,0 +1,122 @@
+package ru.mifi.practice.booking.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import ru.mifi.practice.booking.client.HotelClient;
+import ru.mifi.practice.booking.model.ReleaseOutboxEntry;
+import ru.mifi.practice.booking.repository.ReleaseOutboxRepository;
+import ru.mifi.practice.booking.security.JwtTokenService;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReleaseOutboxDispatcherTest {
+
+    @Mock
+    private ReleaseOutboxRepository repository;
+
+    @Mock
+    private HotelClient hotelClient;
+
+    @Mock
+    private JwtTokenService jwtTokenService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReleaseOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        dispatcher = new ReleaseOutboxDispatcher(repository, hotelClient, jwtTokenService, transactionTemplate,
+                meterRegistry, 100, 4, Duration.ofSeconds(1), Duration.ofMinutes(5));
+        lenient().when(jwtTokenService.generateService("booking-service")).thenReturn("service-token");
+    }
+
+    @Test
+    void acknowledgedReleaseIsRemoved() {
+        ReleaseOutboxEntry entry = entry(1L, "r1");
+        when(repository.findDue(any(), any())).thenReturn(List.of(entry));
+        when(hotelClient.release(10L, "r1", "service-token")).thenReturn(Mono.empty());
+        when(repository.count()).thenReturn(0L);
+
+        dispatcher.drain();
+
+        verify(repository).deleteAllByIdInBatch(List.of(1L));
+        verify(repository).saveAll(List.of());
+        assertEquals(1, meterRegistry.get("booking.release.outbox.latency").timer().count());
+        assertEquals(0.0, meterRegistry.get("booking.release.outbox.backlog").gauge().value());
+    }
+
+    @Test
+    void failedReleaseIsRescheduledWithBackoff() {
+        ReleaseOutboxEntry entry = entry(1L, "r1");
+        when(repository.findDue(any(), any())).thenReturn(List.of(entry));
+        when(hotelClient.release(eq(10L), eq("r1"), any())).thenReturn(Mono.error(
+                WebClientResponseException.create(HttpStatus.SERVICE_UNAVAILABLE.value(), "Service Unavailable", null, null, null)));
+        when(repository.count()).thenReturn(1L);
+        Instant before = Instant.now();
+
+        dispatcher.drain();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ReleaseOutboxEntry>> saved = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveAll(saved.capture());
+        verify(repository).deleteAllByIdInBatch(List.of());
+        ReleaseOutboxEntry rescheduled = saved.getValue().get(0);
+        assertEquals(1, rescheduled.getAttempts());
+        assertFalse(rescheduled.getNextAttemptAt().isBefore(before.plusSeconds(1)));
+        assertNotNull(rescheduled.getLastError());
+        assertEquals(1.0, meterRegistry.get("booking.release.outbox.failures").counter().count());
+        assertEquals(1.0, meterRegistry.get("booking.release.outbox.backlog").gauge().value());
+    }
+
+    @Test
+    void malformedReleaseIsDropped() {
+        ReleaseOutboxEntry entry = entry(1L, "r1");
+        when(repository.findDue(any(), any())).thenReturn(List.of(entry));
+        when(hotelClient.release(eq(10L), eq("r1"), any())).thenReturn(Mono.error(
+                WebClientResponseException.create(HttpStatus.BAD_REQUEST.value(), "Bad Request", null, null, null)));
+
+        dispatcher.drain();
+
+        verify(repository).deleteAllByIdInBatch(List.of(1L));
+        verify(repository).saveAll(List.of());
+    }
+
+    @Test
+    void backoffDoublesUpToTheCap() {
+        assertEquals(Duration.ofSeconds(1), dispatcher.backoff(1));
+        assertEquals(Duration.ofSeconds(8), dispatcher.backoff(4));
+        assertEquals(Duration.ofMinutes(5), dispatcher.backoff(20));
+        assertEquals(Duration.ofMinutes(5), dispatcher.backoff(1000));
+    }
+
+    private ReleaseOutboxEntry entry(Long id, String requestId) {
+        return ReleaseOutboxEntry.builder()
+                .id(id)
+                .roomId(10L)
+                .requestId(requestId)
+                .attempts(0)
+                .nextAttemptAt(Instant.now())
+                .createdAt(Instant.now())
+                .build();
+    }
+}
@@ -0,0 +1,80 @@
+package ru.mifi.practice.booking.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mifi.practice.booking.repository.ReleaseOutboxRepository;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:release-outbox;DB_CLOSE_DELAY=-1;MODE=LEGACY"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ReleaseOutbox.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReleaseOutboxTest {
+
+    @Autowired
+    private ReleaseOutbox releaseOutbox;
+
+    @Autowired
+    private ReleaseOutboxRepository repository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentEnqueuesOfOneRequestQueueOneReleaseAndBothCommit() throws Exception {
+        String requestId = "outbox-" + UUID.randomUUID();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CountDownLatch firstInserted = new CountDownLatch(1);
+        CountDownLatch secondStarted = new CountDownLatch(1);
+
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> transaction.executeWithoutResult(status -> {
+            releaseOutbox.enqueue(5L, requestId);
+            firstInserted.countDown();
+            await(secondStarted);
+            // let the second insert reach the unique index and wait there for this commit
+            pause();
+        }));
+        assertTrue(firstInserted.await(5, TimeUnit.SECONDS));
+        // The first row is not committed yet, so the second transaction cannot see it.
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> transaction.executeWithoutResult(status -> {
+            secondStarted.countDown();
+            releaseOutbox.enqueue(5L, requestId);
+        }));
+
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+        assertEquals(1, repository.findAll().stream().filter(entry -> entry.getRequestId().equals(requestId)).count());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(300);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ru.mifi.practice.booking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestIdFilterTest {
+
+    @Test
+    void addedRequestIdsAreAlwaysReported() {
+        RequestIdFilter filter = new RequestIdFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("request-" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("request-" + i));
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTarget() {
+        RequestIdFilter filter = new RequestIdFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(UUID.randomUUID().toString());
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+        assertEquals(7, filter.hashes());
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new RequestIdFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new RequestIdFilter(100, 1.0));
+    }
+}
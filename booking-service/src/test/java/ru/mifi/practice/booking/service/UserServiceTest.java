@@ -0,0 +1,102 @@
+package ru.mifi.practice.booking.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.server.ResponseStatusException;
+import ru.mifi.practice.booking.dto.AuthRequest;
+import ru.mifi.practice.booking.dto.UserAdminRequest;
+import ru.mifi.practice.booking.model.Role;
+import ru.mifi.practice.booking.model.User;
+import ru.mifi.practice.booking.repository.UserRepository;
+import ru.mifi.practice.booking.security.JwtTokenService;
+import ru.mifi.practice.booking.security.PasswordHasher;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private JwtTokenService jwtTokenService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private UserService userService;
+    private User alice;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        PasswordHasher passwordHasher = new PasswordHasher(passwordEncoder, meterRegistry, 1, 1,
+                Duration.ofSeconds(5), Duration.ofSeconds(1));
+        userService = new UserService(userRepository, passwordHasher, jwtTokenService,
+                new UserCache(meterRegistry, 100, Duration.ofMinutes(5)));
+        alice = User.builder().id(1L).username("alice").password("hash").role(Role.USER).build();
+    }
+
+    @Test
+    void repeatedLookupsHitCache() {
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(alice));
+
+        assertSame(alice, userService.getByUsername("alice"));
+        assertSame(alice, userService.getByUsername("alice"));
+
+        verify(userRepository, times(1)).findByUsername("alice");
+        assertEquals(0.5, meterRegistry.get("cache.hit.ratio").tag("cache", "users").gauge().value());
+    }
+
+    @Test
+    void unknownUserIsNotCached() {
+        when(userRepository.findByUsername("bob")).thenReturn(Optional.empty());
+
+        assertThrows(ResponseStatusException.class, () -> userService.getByUsername("bob"));
+        assertThrows(ResponseStatusException.class, () -> userService.getByUsername("bob"));
+
+        verify(userRepository, times(2)).findByUsername("bob");
+    }
+
+    @Test
+    void updateAndDeleteEvictCachedUser() {
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(alice));
+        when(passwordEncoder.encode(any())).thenReturn("new-hash");
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        userService.getByUsername("alice");
+        userService.update(new UserAdminRequest("alice", "new-password", Role.ADMIN));
+        userService.getByUsername("alice");
+        userService.delete("alice");
+        userService.getByUsername("alice");
+
+        // one load per cache generation, plus the lookups inside update and delete
+        verify(userRepository, times(5)).findByUsername("alice");
+    }
+
+    @Test
+    void registrationThatLosesOnUniqueIndexIsConflict() {
+        when(userRepository.findByUsername("carol")).thenReturn(Optional.empty());
+        when(passwordEncoder.encode(any())).thenReturn("hash");
+        when(userRepository.save(any(User.class))).thenThrow(new DataIntegrityViolationException("duplicate username"));
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> userService.register(new AuthRequest("carol", "password")));
+
+        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+    }
+}
@@ -0,0 +1,88 @@
+package ru.mifi.practice.gateway.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtReactiveAuthenticationManager;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+// The gateway verifies every bearer token before routing; a client reusing one token pays for the
+// HMAC check once. Entries are keyed by the token's SHA-256 and dropped at the token's exp.
+public class CachingReactiveJwtAuthenticationManager implements ReactiveAuthenticationManager {
+
+    private final ReactiveAuthenticationManager delegate;
+    private final Cache<String, JwtAuthenticationToken> verified;
+
+    public CachingReactiveJwtAuthenticationManager(ReactiveJwtDecoder jwtDecoder, MeterRegistry meterRegistry, long maxSize) {
+        this.delegate = new JwtReactiveAuthenticationManager(jwtDecoder);
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "jwt");
+        Gauge.builder("cache.hit.ratio", verified, cache -> cache.stats().hitRate())
+                .tag("cache", "jwt")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        if (!(authentication instanceof BearerTokenAuthenticationToken bearer)) {
+            return Mono.empty();
+        }
+        String digest = digest(bearer.getToken());
+        JwtAuthenticationToken cached = verified.getIfPresent(digest);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return delegate.authenticate(bearer)
+                .doOnNext(result -> {
+                    if (result instanceof JwtAuthenticationToken jwt && jwt.getToken().getExpiresAt() != null) {
+                        verified.put(digest, jwt);
+                    }
+                });
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static final class UntilTokenExpiry implements Expiry<String, JwtAuthenticationToken> {
+
+        @Override
+        public long expireAfterCreate(String digest, JwtAuthenticationToken token, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), token.getToken().getExpiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String digest, JwtAuthenticationToken token, long currentTime, long currentDuration) {
+            return expireAfterCreate(digest, token, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String digest, JwtAuthenticationToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package ru.mifi.practice.gateway.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Caches successful GET responses of a route per path, query and role set, and answers If-None-Match
+// with 304. hotel-service tags every response with X-Catalog-Version; entries older than the newest
+// version seen are ignored, and a successful write through the route drops them all, since the
+// response to the write still carries the version from before it. The ttl bounds how long a change
+// made behind the gateway's back (another gateway, a direct call) can go unnoticed.
+@Component
+public class CatalogCacheGatewayFilterFactory extends AbstractGatewayFilterFactory<Object> {
+
+    static final String VERSION_HEADER = "X-Catalog-Version";
+
+    private final Cache<String, CachedResponse> responses;
+    private final AtomicLong latestVersion = new AtomicLong(-1);
+    private final Counter hits;
+    private final Counter notModified;
+    private final Counter misses;
+
+    public CatalogCacheGatewayFilterFactory(MeterRegistry meterRegistry,
+                                            @Value("${gateway.catalog-cache.max-size:16MB}") DataSize maxSize,
+                                            @Value("${gateway.catalog-cache.ttl:30s}") Duration ttl) {
+        this.responses = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .<String, CachedResponse>weigher((key, response) -> key.length() + response.body().length)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "catalog");
+        this.hits = lookups(meterRegistry, "hit");
+        this.notModified = lookups(meterRegistry, "not_modified");
+        this.misses = lookups(meterRegistry, "miss");
+    }
+
+    @Override
+    public GatewayFilter apply(Object config) {
+        // Must wrap the response before NettyWriteResponseFilter writes the upstream body into it.
+        return new OrderedGatewayFilter(this::filter, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (exchange.getRequest().getMethod() != HttpMethod.GET) {
+            ServerHttpResponse response = exchange.getResponse();
+            response.beforeCommit(() -> {
+                observe(response.getHeaders());
+                if (response.getStatusCode() != null && response.getStatusCode().is2xxSuccessful()) {
+                    responses.invalidateAll();
+                }
+                return Mono.empty();
+            });
+            return chain.filter(exchange);
+        }
+        return exchange.getPrincipal()
+                .filter(JwtAuthenticationToken.class::isInstance)
+                .map(principal -> key(exchange, (JwtAuthenticationToken) principal))
+                .defaultIfEmpty("")
+                .flatMap(key -> {
+                    if (key.isEmpty()) {
+                        return chain.filter(exchange);
+                    }
+                    CachedResponse cached = responses.getIfPresent(key);
+                    if (cached != null && cached.version() >= latestVersion.get()) {
+                        // Route filters after this one (rate limiting) still run; marking the exchange as routed
+                        // only skips the upstream call. A filter that already answered, e.g. with 429, wins.
+                        ServerWebExchangeUtils.setAlreadyRouted(exchange);
+                        return chain.filter(exchange)
+                                .then(Mono.defer(() -> exchange.getResponse().isCommitted()
+                                        ? Mono.empty()
+                                        : reply(exchange, cached)));
+                    }
+                    misses.increment();
+                    return chain.filter(exchange.mutate().response(new Recording(exchange, key)).build());
+                });
+    }
+
+    private Mono<Void> reply(ServerWebExchange exchange, CachedResponse cached) {
+        ServerHttpResponse response = exchange.getResponse();
+        if (matches(exchange, cached.etag())) {
+            notModified.increment();
+            validators(response.getHeaders(), cached);
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+        hits.increment();
+        response.setStatusCode(HttpStatus.OK);
+        HttpHeaders headers = response.getHeaders();
+        validators(headers, cached);
+        headers.setContentType(cached.contentType());
+        headers.setContentLength(cached.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    private void observe(HttpHeaders headers) {
+        String version = headers.getFirst(VERSION_HEADER);
+        if (version != null) {
+            latestVersion.accumulateAndGet(Long.parseLong(version), Math::max);
+        }
+    }
+
+    private static void validators(HttpHeaders headers, CachedResponse cached) {
+        headers.setETag(cached.etag());
+        headers.setCacheControl("private, no-cache");
+        headers.set(VERSION_HEADER, Long.toString(cached.version()));
+    }
+
+    private static boolean matches(ServerWebExchange exchange, String etag) {
+        List<String> ifNoneMatch = exchange.getRequest().getHeaders().getIfNoneMatch();
+        return ifNoneMatch.stream()
+                .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(tag -> tag.equals("*") || tag.equals(etag));
+    }
+
+    private static String key(ServerWebExchange exchange, JwtAuthenticationToken principal) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String roles = String.join(",", JwtClaims.roles(principal.getToken()).stream().sorted().toList());
+        return (route != null ? route.getId() : "") + "|" + roles + "|" + exchange.getRequest().getURI().getRawPath()
+                + "?" + exchange.getRequest().getURI().getRawQuery();
+    }
+
+    private static String etag(byte[] body) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + HexFormat.of().formatHex(Arrays.copyOf(hash, 16)) + "\"";
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("gateway.catalog.cache.lookups").tag("result", result).register(meterRegistry);
+    }
+
+    private record CachedResponse(long version, String etag, MediaType contentType, byte[] body) {
+    }
+
+    private final class Recording extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final String key;
+
+        private Recording(ServerWebExchange exchange, String key) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.key = key;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            String version = getHeaders().getFirst(VERSION_HEADER);
+            if (getStatusCode() != HttpStatus.OK || version == null) {
+                return super.writeWith(body);
+            }
+            return DataBufferUtils.join(body).flatMap(joined -> {
+                byte[] bytes = new byte[joined.readableByteCount()];
+                joined.read(bytes);
+                DataBufferUtils.release(joined);
+                observe(getHeaders());
+                CachedResponse response = new CachedResponse(Long.parseLong(version), etag(bytes),
+                        getHeaders().getContentType(), bytes);
+                // A response tagged older than a version already seen is stale on arrival.
+                if (response.version() >= latestVersion.get()) {
+                    responses.put(key, response);
+                }
+                validators(getHeaders(), response);
+                if (matches(exchange, response.etag())) {
+                    notModified.increment();
+                    getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+                    setStatusCode(HttpStatus.NOT_MODIFIED);
+                    return setComplete();
+                }
+                return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+            });
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package ru.mifi.practice.gateway.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerUriTools;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Hedged GETs for an lb:// route. Runs just before NettyRoutingFilter, once the load balancer has picked
+// an instance: the request goes there through the gateway's HttpClient and header filters, and if no
+// response arrives within the route's latency percentile a second attempt goes to another instance.
+// The race is decided on the response headers; the winner's body is streamed to the client as is and
+// the other attempt is cancelled. The exchange is marked as routed so NettyRoutingFilter skips it, and
+// the rest of the chain still runs; a cache hit or a filter that already answered is left alone.
+@Component
+public class HedgeGatewayFilterFactory extends AbstractGatewayFilterFactory<HedgeGatewayFilterFactory.Config> {
+
+    private final WebClient webClient;
+    private final Function<String, Mono<ServiceInstance>> loadBalancer;
+    private final Supplier<List<HttpHeadersFilter>> headersFilters;
+    private final Duration responseTimeout;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final double percentile;
+    private final Duration minDelay;
+    private final Duration initialDelay;
+    private final double maxRatio;
+    private final int window;
+
+    @Autowired
+    public HedgeGatewayFilterFactory(HttpClient httpClient,
+                                     LoadBalancerClientFactory clientFactory,
+                                     ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+                                     HttpClientProperties httpClientProperties,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${gateway.hedging.enabled:true}") boolean enabled,
+                                     @Value("${gateway.hedging.percentile:0.95}") double percentile,
+                                     @Value("${gateway.hedging.min-delay:20ms}") Duration minDelay,
+                                     @Value("${gateway.hedging.initial-delay:100ms}") Duration initialDelay,
+                                     @Value("${gateway.hedging.max-ratio:0.1}") double maxRatio,
+                                     @Value("${gateway.hedging.window:256}") int window) {
+        this(WebClient.builder().clientConnector(new ReactorClientHttpConnector(httpClient)).build(),
+                serviceId -> Mono.from(clientFactory.getInstance(serviceId).choose())
+                        .mapNotNull(response -> response.hasServer() ? response.getServer() : null),
+                () -> headersFilters.getIfAvailable(List::of),
+                httpClientProperties.getResponseTimeout(),
+                meterRegistry, enabled, percentile, minDelay, initialDelay, maxRatio, window);
+    }
+
+    HedgeGatewayFilterFactory(WebClient webClient, Function<String, Mono<ServiceInstance>> loadBalancer,
+                              Supplier<List<HttpHeadersFilter>> headersFilters, Duration responseTimeout,
+                              MeterRegistry meterRegistry, boolean enabled, double percentile,
+                              Duration minDelay, Duration initialDelay, double maxRatio, int window) {
+        super(Config.class);
+        this.webClient = webClient;
+        this.loadBalancer = loadBalancer;
+        this.headersFilters = headersFilters;
+        this.responseTimeout = responseTimeout;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelay = minDelay;
+        this.initialDelay = initialDelay;
+        this.maxRatio = maxRatio;
+        this.window = window;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        if (!enabled) {
+            return (exchange, chain) -> chain.filter(exchange);
+        }
+        HedgingPolicy policy = new HedgingPolicy(meterRegistry, config.getRouteId(), percentile, minDelay,
+                initialDelay, maxRatio, window);
+        // After the load balancer has resolved GATEWAY_REQUEST_URL_ATTR, before NettyRoutingFilter.
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            URI primary = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+            if (exchange.getRequest().getMethod() != HttpMethod.GET
+                    || ServerWebExchangeUtils.isAlreadyRouted(exchange)
+                    || route == null
+                    || !"lb".equals(route.getUri().getScheme())
+                    || primary == null) {
+                return chain.filter(exchange);
+            }
+            ServerWebExchangeUtils.setAlreadyRouted(exchange);
+            HttpHeaders headers = requestHeaders(exchange);
+            Mono<ResponseEntity<Flux<DataBuffer>>> backup = otherInstance(route.getUri().getHost(), primary)
+                    .flatMap(uri -> send(uri, headers));
+            return chain.filter(exchange)
+                    .then(Mono.defer(() -> exchange.getResponse().isCommitted()
+                            ? Mono.empty()
+                            : policy.hedge(send(primary, headers), backup)
+                                    .flatMap(upstream -> write(exchange, upstream))));
+        }, Ordered.LOWEST_PRECEDENCE - 1);
+    }
+
+    // Round-robin usually hands out the next instance already; one more pick covers a collision, and a
+    // single-instance service is hedged against itself.
+    private Mono<URI> otherInstance(String serviceId, URI primary) {
+        return Mono.defer(() -> loadBalancer.apply(serviceId))
+                .filter(instance -> !instance.getHost().equals(primary.getHost()) || instance.getPort() != primary.getPort())
+                .switchIfEmpty(Mono.defer(() -> loadBalancer.apply(serviceId)))
+                .map(instance -> LoadBalancerUriTools.reconstructURI(instance, primary));
+    }
+
+    private Mono<ResponseEntity<Flux<DataBuffer>>> send(URI uri, HttpHeaders headers) {
+        Mono<ResponseEntity<Flux<DataBuffer>>> response = webClient.get()
+                .uri(uri)
+                .headers(target -> target.addAll(headers))
+                .retrieve()
+                // Every status goes back to the client, as NettyRoutingFilter would relay it.
+                .onStatus(status -> true, clientResponse -> Mono.empty())
+                .toEntityFlux(DataBuffer.class);
+        if (responseTimeout == null) {
+            return response;
+        }
+        return response.timeout(responseTimeout, Mono.error(() -> new ResponseStatusException(
+                HttpStatus.GATEWAY_TIMEOUT, "Response took longer than timeout: " + responseTimeout)));
+    }
+
+    private HttpHeaders requestHeaders(ServerWebExchange exchange) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(HttpHeadersFilter.filterRequest(headersFilters.get(), exchange));
+        if (!Boolean.TRUE.equals(exchange.getAttribute(ServerWebExchangeUtils.PRESERVE_HOST_HEADER_ATTRIBUTE))) {
+            headers.remove(HttpHeaders.HOST);
+        }
+        return headers;
+    }
+
+    private Mono<Void> write(ServerWebExchange exchange, ResponseEntity<Flux<DataBuffer>> upstream) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(upstream.getStatusCode());
+        response.getHeaders().putAll(HttpHeadersFilter.filter(headersFilters.get(), upstream.getHeaders(), exchange,
+                HttpHeadersFilter.Type.RESPONSE));
+        return response.writeWith(upstream.getBody() != null ? upstream.getBody() : Flux.empty());
+    }
+
+    @Getter
+    @Setter
+    public static class Config implements HasRouteId {
+
+        private String routeId;
+    }
+}
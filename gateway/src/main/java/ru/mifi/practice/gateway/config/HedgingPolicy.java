@@ -0,0 +1,125 @@
+package ru.mifi.practice.gateway.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Hedging for one route, built by HedgeGatewayFilterFactory: if the first attempt has not answered
+// within the configured percentile of the route's recent latencies, a second one is sent and the first
+// response wins, the other is cancelled. Every request tops up a budget by max-ratio and every hedge
+// spends one from it, so hedges stay below that share of the route's traffic.
+class HedgingPolicy {
+
+    // Hedges that may be saved up during a quiet period and spent at once.
+    private static final long BUDGET_CAP = 10_000;
+    private static final long HEDGE_COST = 1_000;
+    private static final int RECOMPUTE_EVERY = 16;
+
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long deposit;
+    private final long[] latencies;
+    private final AtomicLong budget = new AtomicLong();
+    private final Counter sent;
+    private final Counter won;
+    private volatile long delayNanos;
+    private long recorded;
+
+    HedgingPolicy(MeterRegistry meterRegistry, String routeId, double percentile, Duration minDelay,
+                  Duration initialDelay, double maxRatio, int window) {
+        if (percentile <= 0 || percentile >= 1 || maxRatio < 0 || maxRatio > 1 || window < RECOMPUTE_EVERY) {
+            throw new IllegalArgumentException("Invalid hedging settings");
+        }
+        this.percentile = percentile;
+        this.minDelayNanos = minDelay.toNanos();
+        this.deposit = Math.round(maxRatio * HEDGE_COST);
+        this.latencies = new long[window];
+        this.delayNanos = Math.max(minDelayNanos, initialDelay.toNanos());
+        this.sent = Counter.builder("gateway.hedge.sent").tag("route", routeId).register(meterRegistry);
+        this.won = Counter.builder("gateway.hedge.won").tag("route", routeId).register(meterRegistry);
+        Gauge.builder("gateway.hedge.delay", this, policy -> policy.delayNanos)
+                .tag("route", routeId)
+                .baseUnit("nanoseconds")
+                .register(meterRegistry);
+    }
+
+    // The backup is subscribed to only if the hedge is sent, so it must be cold.
+    <T> Mono<T> hedge(Mono<T> attempt, Mono<T> backupAttempt) {
+        return Mono.defer(() -> {
+            budget.accumulateAndGet(deposit, (current, add) -> Math.min(BUDGET_CAP, current + add));
+            // A primary that fails outright is not hedged: its error is the answer.
+            Sinks.Empty<Void> primaryFailed = Sinks.empty();
+            Mono<T> primary = timed(attempt).doOnError(error -> primaryFailed.tryEmitEmpty());
+            Mono<T> backup = Mono.delay(Duration.ofNanos(delayNanos))
+                    .takeUntilOther(primaryFailed.asMono())
+                    .filter(tick -> tryWithdraw())
+                    .flatMap(tick -> {
+                        sent.increment();
+                        return timed(backupAttempt).doOnNext(value -> won.increment());
+                    });
+            return Mono.firstWithValue(primary, backup).onErrorMap(NoSuchElementException.class, HedgingPolicy::firstFailure);
+        });
+    }
+
+    Duration delay() {
+        return Duration.ofNanos(delayNanos);
+    }
+
+    double hedgesSent() {
+        return sent.count();
+    }
+
+    double hedgesWon() {
+        return won.count();
+    }
+
+    // Only attempts that answered are sampled; a cancelled loser's elapsed time is a lower bound, not a latency.
+    private <T> Mono<T> timed(Mono<T> attempt) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return attempt.doOnSuccess(value -> record(System.nanoTime() - start))
+                    .doOnError(error -> record(System.nanoTime() - start));
+        });
+    }
+
+    private synchronized void record(long elapsedNanos) {
+        latencies[(int) (recorded % latencies.length)] = elapsedNanos;
+        recorded++;
+        if (recorded % RECOMPUTE_EVERY == 0) {
+            long[] window = Arrays.copyOf(latencies, (int) Math.min(recorded, latencies.length));
+            Arrays.sort(window);
+            long quantile = window[(int) Math.min(window.length - 1, Math.ceil(percentile * window.length) - 1)];
+            delayNanos = Math.max(minDelayNanos, quantile);
+        }
+    }
+
+    private boolean tryWithdraw() {
+        long current;
+        do {
+            current = budget.get();
+            if (current < HEDGE_COST) {
+                return false;
+            }
+        } while (!budget.compareAndSet(current, current - HEDGE_COST));
+        return true;
+    }
+
+    // firstWithValue reports "no source produced a value" and keeps the real errors in a composite
+    // cause, primary first; the gateway should report the upstream failure itself.
+    private static Throwable firstFailure(NoSuchElementException ex) {
+        if (ex.getCause() == null) {
+            return ex;
+        }
+        List<Throwable> failures = Exceptions.unwrapMultiple(ex.getCause());
+        return failures.isEmpty() ? ex : failures.get(0);
+    }
+}
@@ -0,0 +1,108 @@
+package ru.mifi.practice.gateway.config;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+// Identity the gateway forwards after validating the user's JWT, so services behind it check one
+// HMAC over a short string instead of parsing and verifying the JWT again:
+//   v1.<base64url(subject)>.<uid>.<ROLE,ROLE>.<exp epoch seconds>.<base64url(HMAC-SHA256 of the part before)>
+// The same class lives in gateway, booking-service and hotel-service; keep the format in sync.
+public class InternalIdentity {
+
+    public static final String HEADER = "X-Internal-Identity";
+
+    private static final String VERSION = "v1.";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    // HMAC-SHA256 key size; a shorter or well-known secret lets anyone forge an ADMIN identity
+    private static final int MIN_SECRET_BYTES = 32;
+
+    private final SecretKeySpec key;
+    private final Duration ttl;
+
+    public InternalIdentity(String secret, Duration ttl) {
+        if (secret == null || secret.isBlank() || secret.getBytes(StandardCharsets.UTF_8).length < MIN_SECRET_BYTES) {
+            throw new IllegalArgumentException("security.internal-identity.secret must be at least " + MIN_SECRET_BYTES + " bytes");
+        }
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.ttl = ttl;
+    }
+
+    public static boolean isInternal(String value) {
+        return value != null && value.startsWith(VERSION);
+    }
+
+    // The identity never outlives the user's token and is capped at ttl, so a captured header is short-lived.
+    public String sign(String subject, Long userId, Collection<String> roles, Instant expiresAt) {
+        Instant capped = Instant.now().plus(ttl);
+        if (expiresAt != null && expiresAt.isBefore(capped)) {
+            capped = expiresAt;
+        }
+        String payload = VERSION + ENCODER.encodeToString(subject.getBytes(StandardCharsets.UTF_8))
+                + "." + (userId != null ? userId : "")
+                + "." + String.join(",", roles)
+                + "." + capped.getEpochSecond();
+        return payload + "." + ENCODER.encodeToString(mac(payload));
+    }
+
+    // Returns the identity as a Jwt with the claims the services read (sub, uid, roles, exp),
+    // so controllers and role conversion work the same way for both paths.
+    public Optional<Jwt> verify(String value) {
+        if (!isInternal(value)) {
+            return Optional.empty();
+        }
+        int signatureAt = value.lastIndexOf('.');
+        if (signatureAt < VERSION.length()) {
+            return Optional.empty();
+        }
+        String payload = value.substring(0, signatureAt);
+        byte[] signature;
+        try {
+            signature = DECODER.decode(value.substring(signatureAt + 1));
+        } catch (IllegalArgumentException ex) {
+            return Optional.empty();
+        }
+        if (!MessageDigest.isEqual(mac(payload), signature)) {
+            return Optional.empty();
+        }
+        String[] parts = payload.substring(VERSION.length()).split("\\.", -1);
+        if (parts.length != 4) {
+            return Optional.empty();
+        }
+        Instant expiresAt = Instant.ofEpochSecond(Long.parseLong(parts[3]));
+        if (!Instant.now().isBefore(expiresAt)) {
+            return Optional.empty();
+        }
+        Jwt.Builder jwt = Jwt.withTokenValue(value)
+                .header("alg", "HS256")
+                .subject(new String(DECODER.decode(parts[0]), StandardCharsets.UTF_8))
+                .claim("roles", parts[2].isEmpty() ? List.of() : Arrays.asList(parts[2].split(",")))
+                .expiresAt(expiresAt);
+        if (!parts[1].isEmpty()) {
+            jwt.claim("uid", Long.parseLong(parts[1]));
+        }
+        return Optional.of(jwt.build());
+    }
+
+    private byte[] mac(String payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ru.mifi.practice.gateway.config;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+// The gateway has already verified the JWT; services behind it get the compact internal identity
+// instead. A client-supplied identity header is always dropped, whether or not relaying is on
+// (it is off when there is no identity, i.e. security.internal-identity.enabled is not set).
+public class InternalIdentityRelayFilter implements GlobalFilter, Ordered {
+
+    private final InternalIdentity internalIdentity;
+
+    public InternalIdentityRelayFilter(InternalIdentity internalIdentity) {
+        this.internalIdentity = internalIdentity;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerWebExchange stripped = exchange.mutate()
+                .request(request -> request.headers(headers -> headers.remove(InternalIdentity.HEADER)))
+                .build();
+        if (internalIdentity == null) {
+            return chain.filter(stripped);
+        }
+        return stripped.getPrincipal()
+                .filter(JwtAuthenticationToken.class::isInstance)
+                .map(principal -> relay(stripped, ((JwtAuthenticationToken) principal).getToken()))
+                .defaultIfEmpty(stripped)
+                .flatMap(chain::filter);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    private ServerWebExchange relay(ServerWebExchange exchange, Jwt jwt) {
+        String identity = internalIdentity.sign(jwt.getSubject(), JwtClaims.userId(jwt), JwtClaims.roles(jwt), jwt.getExpiresAt());
+        return exchange.mutate()
+                .request(request -> request.headers(headers -> {
+                    headers.remove(HttpHeaders.AUTHORIZATION);
+                    headers.set(InternalIdentity.HEADER, identity);
+                }))
+                .build();
+    }
+}
@@ -0,0 +1,28 @@
+package ru.mifi.practice.gateway.config;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.Collection;
+import java.util.List;
+
+// Claims issued by booking-service, read the same way its JwtRoleConverter reads them.
+final class JwtClaims {
+
+    private JwtClaims() {
+    }
+
+    static Long userId(Jwt jwt) {
+        return jwt.getClaim("uid") instanceof Number id ? id.longValue() : null;
+    }
+
+    static List<String> roles(Jwt jwt) {
+        Object roles = jwt.getClaims().getOrDefault("roles", jwt.getClaims().get("role"));
+        if (roles instanceof String role) {
+            return List.of(role);
+        }
+        if (roles instanceof Collection<?> collection) {
+            return collection.stream().map(Object::toString).toList();
+        }
+        return List.of();
+    }
+}
@@ -0,0 +1,108 @@
+package ru.mifi.practice.gateway.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.constraints.Min;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-process replacement for RedisRateLimiter behind the RequestRateLimiter filter. Each (route, key)
+// bucket is a token bucket kept as a single theoretical arrival time (GCRA), so a request is one CAS
+// on an AtomicLong. Limits are per gateway instance. A bucket idle for longer than it takes to refill
+// is full again, so evicting it after idle-timeout loses nothing; max-buckets caps memory under churn.
+@Component
+public class LocalRateLimiter extends AbstractRateLimiter<LocalRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "local-rate-limiter";
+    static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+
+    private final Cache<String, AtomicLong> buckets;
+    private final Config defaultConfig;
+    private final MeterRegistry meterRegistry;
+
+    public LocalRateLimiter(ConfigurationService configurationService,
+                            MeterRegistry meterRegistry,
+                            @Value("${gateway.rate-limit.max-buckets:100000}") long maxBuckets,
+                            @Value("${gateway.rate-limit.idle-timeout:1m}") Duration idleTimeout,
+                            @Value("${gateway.rate-limit.default.replenish-rate:50}") int replenishRate,
+                            @Value("${gateway.rate-limit.default.burst-capacity:100}") int burstCapacity) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(idleTimeout)
+                .build();
+        this.defaultConfig = new Config();
+        this.defaultConfig.setReplenishRate(replenishRate);
+        this.defaultConfig.setBurstCapacity(burstCapacity);
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("gateway.rate.limit.buckets", buckets, Cache::estimatedSize).register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        AtomicLong bucket = buckets.get(routeId + "|" + id, key -> new AtomicLong(Long.MIN_VALUE));
+        Decision decision = acquire(bucket, config, System.nanoTime());
+        if (decision.allowed()) {
+            return Mono.just(new Response(true, Map.of(REMAINING_HEADER, Long.toString(decision.remaining()))));
+        }
+        Counter.builder("gateway.rate.limit.rejected").tag("route", routeId).register(meterRegistry).increment();
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(decision.retryAfterNanos() + 999_999_999));
+        return Mono.just(new Response(false, Map.of(
+                REMAINING_HEADER, "0",
+                HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))));
+    }
+
+    // The bucket holds the time at which it would be empty again if nothing else arrived. A request
+    // pushes that time forward by its cost and is admitted while it stays within burst capacity of now.
+    static Decision acquire(AtomicLong theoreticalArrival, Config config, long now) {
+        long interval = TimeUnit.SECONDS.toNanos(1) / config.getReplenishRate();
+        long cost = interval * config.getRequestedTokens();
+        long tolerance = interval * config.getBurstCapacity();
+        while (true) {
+            long current = theoreticalArrival.get();
+            long next = Math.max(current, now) + cost;
+            long excess = next - now - tolerance;
+            if (excess > 0) {
+                return new Decision(false, 0, excess);
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return new Decision(true, -excess / interval, 0);
+            }
+        }
+    }
+
+    record Decision(boolean allowed, long remaining, long retryAfterNanos) {
+    }
+
+    @Getter
+    @Setter
+    @Validated
+    public static class Config {
+
+        // tokens added per second
+        @Min(1)
+        private int replenishRate;
+
+        @Min(1)
+        private int burstCapacity;
+
+        @Min(1)
+        private int requestedTokens = 1;
+    }
+}
@@ -1,6 +1,9 @@
 package ru.mifi.practice.gateway.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
@@ -12,6 +15,7 @@ import org.springframework.security.web.server.SecurityWebFilterChain;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Base64;
 
 @Configuration
@@ -19,17 +23,37 @@ import java.util.Base64;
 public class SecurityConfig {
 
     @Bean
-    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http,
+                                                         CachingReactiveJwtAuthenticationManager jwtAuthenticationManager) {
         return http
                 .csrf(ServerHttpSecurity.CsrfSpec::disable)
                 .authorizeExchange(exchange -> exchange
                         .pathMatchers("/api/bookings/user/register", "/api/bookings/user/auth").permitAll()
                         .pathMatchers("/actuator/**").permitAll()
                         .anyExchange().authenticated())
-                .oauth2ResourceServer(oauth -> oauth.jwt())
+                .oauth2ResourceServer(oauth -> oauth.jwt(jwt -> jwt.authenticationManager(jwtAuthenticationManager)))
                 .build();
     }
 
+    @Bean
+    public CachingReactiveJwtAuthenticationManager jwtAuthenticationManager(ReactiveJwtDecoder jwtDecoder,
+                                                                            MeterRegistry meterRegistry,
+                                                                            @Value("${security.jwt.cache.max-size:10000}") long maxSize) {
+        return new CachingReactiveJwtAuthenticationManager(jwtDecoder, meterRegistry, maxSize);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "security.internal-identity.enabled", havingValue = "true")
+    public InternalIdentity internalIdentity(@Value("${security.internal-identity.secret}") String secret,
+                                             @Value("${security.internal-identity.ttl:60s}") Duration ttl) {
+        return new InternalIdentity(secret, ttl);
+    }
+
+    @Bean
+    public InternalIdentityRelayFilter internalIdentityRelayFilter(ObjectProvider<InternalIdentity> internalIdentity) {
+        return new InternalIdentityRelayFilter(internalIdentity.getIfAvailable());
+    }
+
     @Bean
     public ReactiveJwtDecoder jwtDecoder(@Value("${security.jwt.secret}") String secret) {
         byte[] keyBytes;
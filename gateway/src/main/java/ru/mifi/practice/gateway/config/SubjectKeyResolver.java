@@ -0,0 +1,27 @@
+package ru.mifi.practice.gateway.config;
+
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.security.Principal;
+
+// Rate-limit key: the JWT subject, or the client address on the anonymous register and login routes.
+@Component
+public class SubjectKeyResolver implements KeyResolver {
+
+    @Override
+    public Mono<String> resolve(ServerWebExchange exchange) {
+        return exchange.getPrincipal()
+                .map(Principal::getName)
+                .map(subject -> "user:" + subject)
+                .switchIfEmpty(Mono.fromSupplier(() -> "ip:" + address(exchange)));
+    }
+
+    private static String address(ServerWebExchange exchange) {
+        InetSocketAddress remote = exchange.getRequest().getRemoteAddress();
+        return remote != null ? remote.getHostString() : "unknown";
+    }
+}
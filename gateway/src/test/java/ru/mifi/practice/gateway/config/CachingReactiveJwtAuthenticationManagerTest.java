@@ -0,0 +1,74 @@
+package ru.mifi.practice.gateway.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingReactiveJwtAuthenticationManagerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger decoded = new AtomicInteger();
+
+    @Test
+    void decodesTokenOnceUntilExpiry() {
+        CachingReactiveJwtAuthenticationManager manager = manager(Instant.now().plusSeconds(60));
+
+        Authentication first = authenticate(manager);
+        Authentication second = authenticate(manager);
+
+        assertEquals(1, decoded.get());
+        assertEquals("alice", second.getName());
+        assertEquals(first.getAuthorities(), second.getAuthorities());
+        assertEquals(0.5, meterRegistry.get("cache.hit.ratio").tag("cache", "jwt").gauge().value());
+    }
+
+    @Test
+    void entryIsEvictedAtTokenExpiry() throws InterruptedException {
+        CachingReactiveJwtAuthenticationManager manager = manager(Instant.now().plusMillis(300));
+
+        authenticate(manager);
+        authenticate(manager);
+        assertEquals(1, decoded.get());
+
+        Thread.sleep(400);
+        authenticate(manager);
+        assertEquals(2, decoded.get());
+    }
+
+    @Test
+    void tokensWithoutExpiryAreNotCached() {
+        CachingReactiveJwtAuthenticationManager manager = manager(null);
+
+        authenticate(manager);
+        authenticate(manager);
+
+        assertEquals(2, decoded.get());
+    }
+
+    private static Authentication authenticate(CachingReactiveJwtAuthenticationManager manager) {
+        return manager.authenticate(new BearerTokenAuthenticationToken("token")).block();
+    }
+
+    // The decoder only counts calls; it does not check the token's exp itself.
+    private CachingReactiveJwtAuthenticationManager manager(Instant expiresAt) {
+        ReactiveJwtDecoder decoder = token -> Mono.fromSupplier(() -> {
+            decoded.incrementAndGet();
+            Jwt.Builder jwt = Jwt.withTokenValue(token)
+                    .header("alg", "HS256")
+                    .subject("alice")
+                    .claim("roles", List.of("USER"));
+            return expiresAt != null ? jwt.expiresAt(expiresAt).build() : jwt.build();
+        });
+        return new CachingReactiveJwtAuthenticationManager(decoder, meterRegistry, 100);
+    }
+}
@@ -0,0 +1,115 @@
+package ru.mifi.practice.gateway.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogCacheGatewayFilterFactoryTest {
+
+    private final GatewayFilter filter = new CatalogCacheGatewayFilterFactory(
+            new SimpleMeterRegistry(), DataSize.ofMegabytes(1), Duration.ofMinutes(1)).apply(new Object());
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private long upstreamVersion = 1;
+    private String upstreamBody = "[{\"id\":1}]";
+    private boolean rejectAll;
+
+    @Test
+    void servesRepeatedGetsFromCacheAndAnswersIfNoneMatch() {
+        MockServerWebExchange first = get(null);
+        MockServerWebExchange second = get(null);
+        String etag = first.getResponse().getHeaders().getETag();
+        MockServerWebExchange conditional = get(etag);
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(upstreamBody, second.getResponse().getBodyAsString().block());
+        assertEquals(etag, second.getResponse().getHeaders().getETag());
+        assertEquals(HttpStatus.NOT_MODIFIED, conditional.getResponse().getStatusCode());
+    }
+
+    @Test
+    void newerCatalogVersionOrWriteDropsEntries() {
+        get(null);
+        upstreamVersion = 2;
+        upstreamBody = "[{\"id\":1},{\"id\":2}]";
+        run(MockServerWebExchange.from(MockServerHttpRequest.post("/api/hotels")));
+
+        MockServerWebExchange refreshed = get(null);
+
+        assertEquals(3, upstreamCalls.get());
+        assertEquals(upstreamBody, refreshed.getResponse().getBodyAsString().block());
+        assertEquals("2", refreshed.getResponse().getHeaders().getFirst(CatalogCacheGatewayFilterFactory.VERSION_HEADER));
+    }
+
+    @Test
+    void laterRouteFiltersStillRejectCacheHits() {
+        get(null);
+        rejectAll = true;
+
+        MockServerWebExchange limited = get(null);
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, limited.getResponse().getStatusCode());
+        assertEquals("", limited.getResponse().getBodyAsString().defaultIfEmpty("").block());
+    }
+
+    @Test
+    void cachesPerRoleSet() {
+        get(null);
+        run(MockServerWebExchange.from(MockServerHttpRequest.get("/api/hotels")), "ADMIN");
+
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    private MockServerWebExchange get(String ifNoneMatch) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/hotels");
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return run(MockServerWebExchange.from(request), "USER");
+    }
+
+    private MockServerWebExchange run(MockServerWebExchange exchange) {
+        return run(exchange, "USER");
+    }
+
+    private MockServerWebExchange run(MockServerWebExchange exchange, String role) {
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "HS256").subject("alice").claim("roles", List.of(role)).build();
+        ServerWebExchange authenticated = exchange.mutate().principal(Mono.just(new JwtAuthenticationToken(jwt))).build();
+        filter.filter(authenticated, this::upstream).block();
+        return exchange;
+    }
+
+    // Stands in for the rest of the route: a rate limiter, then NettyRoutingFilter, which skips routed exchanges.
+    private Mono<Void> upstream(ServerWebExchange exchange) {
+        if (rejectAll) {
+            exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+            return exchange.getResponse().setComplete();
+        }
+        if (ServerWebExchangeUtils.isAlreadyRouted(exchange)) {
+            return Mono.empty();
+        }
+        upstreamCalls.incrementAndGet();
+        exchange.getResponse().setStatusCode(HttpStatus.OK);
+        exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        exchange.getResponse().getHeaders().set(CatalogCacheGatewayFilterFactory.VERSION_HEADER, Long.toString(upstreamVersion));
+        byte[] body = upstreamBody.getBytes(StandardCharsets.UTF_8);
+        return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(body)));
+    }
+}
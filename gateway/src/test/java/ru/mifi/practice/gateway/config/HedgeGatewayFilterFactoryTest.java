@@ -0,0 +1,135 @@
+package ru.mifi.practice.gateway.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgeGatewayFilterFactoryTest {
+
+    private final List<ClientRequest> sent = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean firstCancelled = new AtomicBoolean();
+    private final AtomicBoolean chainCalled = new AtomicBoolean();
+    private final GatewayFilter filter = filter();
+
+    @Test
+    void slowGetIsHedgedToAnotherInstanceAndItsAnswerIsStreamed() {
+        MockServerWebExchange exchange = run(MockServerHttpRequest.get("/api/rooms/recommend?limit=5")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer token")
+                .header("X-Hop", "dropped"));
+
+        assertEquals(2, sent.size());
+        assertTrue(firstCancelled.get());
+        assertEquals("http://10.0.0.1:8081/api/rooms/recommend?limit=5", sent.get(0).url().toString());
+        assertEquals("http://10.0.0.2:8081/api/rooms/recommend?limit=5", sent.get(1).url().toString());
+        assertEquals("Bearer token", sent.get(1).headers().getFirst(HttpHeaders.AUTHORIZATION));
+        assertNull(sent.get(1).headers().getFirst("X-Hop"));
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        assertNull(exchange.getResponse().getHeaders().getFirst("X-Upstream-Hop"));
+        assertEquals("[{\"id\":1}]", exchange.getResponse().getBodyAsString().block());
+        assertTrue(ServerWebExchangeUtils.isAlreadyRouted(exchange));
+        assertTrue(chainCalled.get());
+    }
+
+    @Test
+    void writesAndRoutedExchangesPassThrough() {
+        run(MockServerHttpRequest.post("/api/rooms/recommend"));
+        MockServerWebExchange cached = MockServerWebExchange.from(MockServerHttpRequest.get("/api/rooms"));
+        ServerWebExchangeUtils.setAlreadyRouted(cached);
+        cached.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route());
+        filter.filter(cached, exchange -> Mono.empty()).block();
+
+        assertTrue(sent.isEmpty());
+    }
+
+    @Test
+    void responseFromAnEarlierFilterIsKept() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/rooms/recommend"));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route());
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR,
+                URI.create("http://10.0.0.1:8081/api/rooms/recommend"));
+        filter.filter(exchange, e -> {
+            e.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+            return e.getResponse().setComplete();
+        }).block(Duration.ofSeconds(1));
+
+        assertTrue(sent.isEmpty());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exchange.getResponse().getStatusCode());
+    }
+
+    // The load balancer picked 10.0.0.1 for the primary; that instance never answers.
+    private MockServerWebExchange run(MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route());
+        URI uri = exchange.getRequest().getURI();
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR,
+                URI.create("http://10.0.0.1:8081" + uri.getRawPath() + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "")));
+        filter.filter(exchange, e -> Mono.fromRunnable(() -> chainCalled.set(true))).block(Duration.ofSeconds(1));
+        return exchange;
+    }
+
+    private GatewayFilter filter() {
+        WebClient webClient = WebClient.builder().exchangeFunction(request -> {
+            sent.add(request);
+            if (sent.size() == 1) {
+                return Mono.<ClientResponse>never().doOnCancel(() -> firstCancelled.set(true));
+            }
+            return Mono.just(ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .header("X-Upstream-Hop", "dropped")
+                    .body("[{\"id\":1}]")
+                    .build());
+        }).build();
+        // The round-robin picks the primary's instance first, then the other one.
+        List<String> hosts = new CopyOnWriteArrayList<>(List.of("10.0.0.1", "10.0.0.2"));
+        // Stands in for the gateway's header filters on both directions.
+        HttpHeadersFilter headersFilter = new HttpHeadersFilter() {
+            @Override
+            public HttpHeaders filter(HttpHeaders headers, ServerWebExchange exchange) {
+                HttpHeaders filtered = new HttpHeaders();
+                headers.forEach((name, values) -> {
+                    if (!name.endsWith("Hop")) {
+                        filtered.addAll(name, values);
+                    }
+                });
+                return filtered;
+            }
+
+            @Override
+            public boolean supports(Type type) {
+                return true;
+            }
+        };
+        HedgeGatewayFilterFactory.Config config = new HedgeGatewayFilterFactory.Config();
+        config.setRouteId("hotel-recommend");
+        return new HedgeGatewayFilterFactory(webClient,
+                serviceId -> Mono.just(new DefaultServiceInstance(serviceId, serviceId, hosts.remove(0), 8081, false)),
+                () -> List.of(headersFilter), null, new SimpleMeterRegistry(), true, 0.95,
+                Duration.ofMillis(5), Duration.ofMillis(5), 1.0, 64).apply(config);
+    }
+
+    private static Route route() {
+        return Route.async().id("hotel-recommend").uri("lb://hotel-service").predicate(exchange -> true).build();
+    }
+}
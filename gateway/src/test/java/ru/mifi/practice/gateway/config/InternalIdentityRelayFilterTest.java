@@ -0,0 +1,83 @@
+package ru.mifi.practice.gateway.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InternalIdentityRelayFilterTest {
+
+    private static final String FORGED = "v1.YWRtaW4.1.ADMIN.9999999999.forged";
+
+    private final InternalIdentity internalIdentity = new InternalIdentity("gateway-relay-test-secret-32-bytes", Duration.ofSeconds(60));
+    private final AtomicReference<ServerHttpRequest> forwarded = new AtomicReference<>();
+
+    @Test
+    void clientIdentityIsDroppedWhenRelayingIsOff() {
+        run(new InternalIdentityRelayFilter(null), exchange(), jwt());
+
+        assertNull(forwarded.get().getHeaders().getFirst(InternalIdentity.HEADER));
+        assertEquals("Bearer user-token", forwarded.get().getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+    }
+
+    @Test
+    void clientIdentityIsDroppedForAnonymousRequests() {
+        InternalIdentityRelayFilter filter = new InternalIdentityRelayFilter(internalIdentity);
+        filter.filter(exchange(), this::capture).block();
+
+        assertNull(forwarded.get().getHeaders().getFirst(InternalIdentity.HEADER));
+        assertEquals("Bearer user-token", forwarded.get().getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+    }
+
+    @Test
+    void authorizationIsReplacedBySignedIdentity() {
+        run(new InternalIdentityRelayFilter(internalIdentity), exchange(), jwt());
+
+        HttpHeaders headers = forwarded.get().getHeaders();
+        assertNull(headers.getFirst(HttpHeaders.AUTHORIZATION));
+        String identity = headers.getFirst(InternalIdentity.HEADER);
+        assertNotEquals(FORGED, identity);
+        Jwt relayed = internalIdentity.verify(identity).orElseThrow();
+        assertEquals("alice", relayed.getSubject());
+        assertEquals(7L, relayed.<Long>getClaim("uid"));
+        assertEquals(List.of("USER", "ADMIN"), relayed.getClaimAsStringList("roles"));
+    }
+
+    private void run(InternalIdentityRelayFilter filter, ServerWebExchange exchange, Jwt jwt) {
+        ServerWebExchange authenticated = exchange.mutate().principal(Mono.just(new JwtAuthenticationToken(jwt))).build();
+        filter.filter(authenticated, this::capture).block();
+    }
+
+    private Mono<Void> capture(ServerWebExchange exchange) {
+        forwarded.set(exchange.getRequest());
+        return Mono.empty();
+    }
+
+    private static ServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/bookings")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer user-token")
+                .header(InternalIdentity.HEADER, FORGED));
+    }
+
+    private static Jwt jwt() {
+        return Jwt.withTokenValue("user-token")
+                .header("alg", "HS256")
+                .subject("alice")
+                .claim("uid", 7L)
+                .claim("roles", List.of("USER", "ADMIN"))
+                .expiresAt(Instant.now().plusSeconds(600))
+                .build();
+    }
+}
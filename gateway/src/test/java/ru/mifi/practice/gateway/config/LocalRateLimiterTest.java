@@ -0,0 +1,57 @@
+package ru.mifi.practice.gateway.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalRateLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LocalRateLimiter limiter = new LocalRateLimiter(null, meterRegistry, 1000, Duration.ofMinutes(1), 1, 1);
+
+    @Test
+    void admitsBurstThenRefillsAtReplenishRate() {
+        LocalRateLimiter.Config config = config(10, 3);
+        AtomicLong bucket = new AtomicLong(Long.MIN_VALUE);
+        long now = 0;
+
+        assertEquals(2, LocalRateLimiter.acquire(bucket, config, now).remaining());
+        assertTrue(LocalRateLimiter.acquire(bucket, config, now).allowed());
+        assertTrue(LocalRateLimiter.acquire(bucket, config, now).allowed());
+        LocalRateLimiter.Decision rejected = LocalRateLimiter.acquire(bucket, config, now);
+        assertFalse(rejected.allowed());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), rejected.retryAfterNanos());
+
+        assertTrue(LocalRateLimiter.acquire(bucket, config, now + TimeUnit.MILLISECONDS.toNanos(100)).allowed());
+        assertFalse(LocalRateLimiter.acquire(bucket, config, now + TimeUnit.MILLISECONDS.toNanos(100)).allowed());
+    }
+
+    @Test
+    void limitsEachRouteAndKeySeparatelyAndReportsRetryAfter() {
+        limiter.getConfig().put("bookings", config(1, 2));
+
+        assertTrue(limiter.isAllowed("bookings", "user:alice").block().isAllowed());
+        assertTrue(limiter.isAllowed("bookings", "user:alice").block().isAllowed());
+        RateLimiter.Response rejected = limiter.isAllowed("bookings", "user:alice").block();
+        assertTrue(limiter.isAllowed("bookings", "user:bob").block().isAllowed());
+        assertTrue(limiter.isAllowed("hotels", "user:alice").block().isAllowed());
+
+        assertFalse(rejected.isAllowed());
+        assertEquals("1", rejected.getHeaders().get(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, meterRegistry.get("gateway.rate.limit.rejected").tag("route", "bookings").counter().count());
+    }
+
+    private static LocalRateLimiter.Config config(int replenishRate, int burstCapacity) {
+        LocalRateLimiter.Config config = new LocalRateLimiter.Config();
+        config.setReplenishRate(replenishRate);
+        config.setBurstCapacity(burstCapacity);
+        return config;
+    }
+}
@@ -50,7 +50,7 @@ public class GlobalExceptionHandler {
                 status.getReasonPhrase(),
                 message,
                 request.getRequestURI(),
-                TraceIdHolder.get()
+                TraceIdHolder.get(request)
         );
         return ResponseEntity.status(status).body(body);
     }
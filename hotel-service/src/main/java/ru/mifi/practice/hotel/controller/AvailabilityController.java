@@ -2,6 +2,8 @@ package ru.mifi.practice.hotel.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -10,6 +12,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import ru.mifi.practice.hotel.dto.AvailabilityRequest;
 import ru.mifi.practice.hotel.dto.AvailabilityResponse;
+import ru.mifi.practice.hotel.dto.BatchAvailabilityRequest;
+import ru.mifi.practice.hotel.dto.BatchAvailabilityResponse;
+import ru.mifi.practice.hotel.dto.HoldRequest;
 import ru.mifi.practice.hotel.service.AvailabilityService;
 
 @RestController
@@ -26,10 +31,25 @@ public class AvailabilityController {
         return availabilityService.confirmAvailability(roomId, request);
     }
 
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    @PostMapping("/confirm-availability")
+    public ResponseEntity<BatchAvailabilityResponse> confirmBatch(@Valid @RequestBody BatchAvailabilityRequest request) {
+        BatchAvailabilityResponse response = availabilityService.confirmBatch(request);
+        HttpStatus status = request.atomic() && !response.allAvailable() ? HttpStatus.CONFLICT : HttpStatus.OK;
+        return ResponseEntity.status(status).body(response);
+    }
+
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    @PostMapping("/{id}/commit")
+    public AvailabilityResponse commit(@PathVariable("id") Long roomId,
+                                       @Valid @RequestBody HoldRequest request) {
+        return availabilityService.commit(request.requestId());
+    }
+
     @PreAuthorize("hasAnyRole('USER','ADMIN')")
     @PostMapping("/{id}/release")
     public AvailabilityResponse release(@PathVariable("id") Long roomId,
-                                        @Valid @RequestBody AvailabilityRequest request) {
+                                        @Valid @RequestBody HoldRequest request) {
         return availabilityService.release(request.requestId());
     }
 }
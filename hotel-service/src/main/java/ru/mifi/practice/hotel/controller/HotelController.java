@@ -7,6 +7,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import ru.mifi.practice.hotel.dto.HotelRequest;
 import ru.mifi.practice.hotel.dto.HotelResponse;
@@ -31,7 +32,8 @@ public class HotelController {
 
     @PreAuthorize("hasAnyRole('USER','ADMIN')")
     @GetMapping
-    public List<HotelResponse> list() {
-        return hotelService.findAll().stream().map(mapper::toResponse).toList();
+    public List<HotelResponse> list(@RequestParam(required = false) Long after,
+                                    @RequestParam(defaultValue = "50") int limit) {
+        return hotelService.findPage(after, limit);
     }
 }
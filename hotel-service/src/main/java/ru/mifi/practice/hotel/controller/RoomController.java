@@ -2,6 +2,7 @@ package ru.mifi.practice.hotel.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -15,6 +16,7 @@ import ru.mifi.practice.hotel.dto.RoomStatResponse;
 import ru.mifi.practice.hotel.mapper.RoomMapper;
 import ru.mifi.practice.hotel.service.RoomCrudService;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -33,21 +35,36 @@ public class RoomController {
 
     @PreAuthorize("hasAnyRole('USER','ADMIN')")
     @GetMapping
-    public List<RoomResponse> listAvailable() {
-        return roomService.findAllAvailable().stream().map(mapper::toResponse).toList();
+    public List<RoomResponse> listAvailable(@RequestParam(required = false) Long after,
+                                            @RequestParam(defaultValue = "50") int limit) {
+        // Persisted counts: the gateway caches this list, and they change only with the catalog version.
+        return roomService.findAvailablePage(after, limit);
+    }
+
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    @GetMapping("/search")
+    public List<RoomResponse> search(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+                                     @RequestParam(required = false) Long hotelId,
+                                     @RequestParam(required = false) Long after,
+                                     @RequestParam(defaultValue = "50") int limit) {
+        return roomService.findFree(startDate, endDate, hotelId, after, limit).stream().map(mapper::withLiveCount).toList();
     }
 
     @PreAuthorize("hasAnyRole('USER','ADMIN')")
     @GetMapping("/recommend")
-    public List<RoomResponse> recommend() {
-        return roomService.recommended().stream().map(mapper::toResponse).toList();
+    public List<RoomResponse> recommend(@RequestParam(required = false) Integer afterBooked,
+                                        @RequestParam(required = false) Long after,
+                                        @RequestParam(defaultValue = "10") int limit,
+                                        @RequestParam(required = false) Long hotelId) {
+        return roomService.recommended(afterBooked, after, limit, hotelId);
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/stats")
-    public List<RoomStatResponse> stats(@RequestParam(required = false) Boolean available) {
-        return roomService.stats(available).stream()
-                .map(r -> new RoomStatResponse(r.getId(), r.getNumber(), r.isAvailable(), r.getTimesBooked()))
-                .toList();
+    public List<RoomStatResponse> stats(@RequestParam(required = false) Boolean available,
+                                        @RequestParam(required = false) Long after,
+                                        @RequestParam(defaultValue = "50") int limit) {
+        return roomService.statsPage(available, after, limit).stream().map(mapper::toStat).toList();
     }
 }
@@ -0,0 +1,14 @@
+package ru.mifi.practice.hotel.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDate;
+
+public record BatchAvailabilityItem(
+        @NotNull Long roomId,
+        @NotNull LocalDate startDate,
+        @NotNull LocalDate endDate,
+        @NotBlank String requestId
+) {
+}
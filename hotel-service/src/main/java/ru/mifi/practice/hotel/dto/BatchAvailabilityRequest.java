@@ -0,0 +1,13 @@
+package ru.mifi.practice.hotel.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BatchAvailabilityRequest(
+        @NotEmpty @Size(max = 500) List<@Valid BatchAvailabilityItem> items,
+        boolean atomic
+) {
+}
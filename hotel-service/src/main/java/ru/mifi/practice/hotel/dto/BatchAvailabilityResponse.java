@@ -0,0 +1,6 @@
+package ru.mifi.practice.hotel.dto;
+
+import java.util.List;
+
+public record BatchAvailabilityResponse(boolean allAvailable, List<BatchItemResult> results) {
+}
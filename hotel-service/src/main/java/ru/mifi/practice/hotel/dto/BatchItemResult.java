@@ -0,0 +1,4 @@
+package ru.mifi.practice.hotel.dto;
+
+public record BatchItemResult(Long roomId, String requestId, boolean available, String reason) {
+}
@@ -0,0 +1,6 @@
+package ru.mifi.practice.hotel.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record HoldRequest(@NotBlank String requestId) {
+}
@@ -0,0 +1,6 @@
+package ru.mifi.practice.hotel.dto;
+
+import java.time.LocalDate;
+
+public record ReservationSlot(Long roomId, String requestId, LocalDate startDate, LocalDate endDate) {
+}
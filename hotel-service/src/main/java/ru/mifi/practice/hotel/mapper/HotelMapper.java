@@ -1,17 +1,23 @@
 package ru.mifi.practice.hotel.mapper;
 
+import lombok.RequiredArgsConstructor;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import ru.mifi.practice.hotel.dto.HotelResponse;
+import ru.mifi.practice.hotel.dto.RoomResponse;
 import ru.mifi.practice.hotel.dto.RoomShortResponse;
 import ru.mifi.practice.hotel.model.Hotel;
 import ru.mifi.practice.hotel.model.Room;
+import ru.mifi.practice.hotel.service.BookingCounter;
 
 import java.util.List;
 
 @org.springframework.stereotype.Component
+@RequiredArgsConstructor
 public class HotelMapper {
 
+    private final BookingCounter bookingCounter;
+
     public HotelResponse toResponse(Hotel hotel) {
         return new HotelResponse(
                 hotel.getId(),
@@ -21,11 +27,24 @@ public class HotelMapper {
         );
     }
 
+    // For the cached hotel list: persisted counts, which change only with the catalog version.
+    public HotelResponse toResponse(Hotel hotel, List<RoomResponse> rooms) {
+        return new HotelResponse(
+                hotel.getId(),
+                hotel.getName(),
+                hotel.getAddress(),
+                rooms.stream()
+                        .map(room -> new RoomShortResponse(room.id(), room.number(), room.available(), room.timesBooked()))
+                        .toList()
+        );
+    }
+
     private RoomShortResponse toShort(Room room) {
         if (room == null) {
             return null;
         }
-        return new RoomShortResponse(room.getId(), room.getNumber(), room.isAvailable(), room.getTimesBooked());
+        return new RoomShortResponse(room.getId(), room.getNumber(), room.isAvailable(),
+                bookingCounter.liveCount(room.getId(), room.getTimesBooked()));
     }
 
     private List<RoomShortResponse> toShortList(List<Room> rooms) {
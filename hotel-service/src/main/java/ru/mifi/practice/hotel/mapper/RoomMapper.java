@@ -1,15 +1,32 @@
 package ru.mifi.practice.hotel.mapper;
 
-import org.mapstruct.Mapper;
-import org.mapstruct.Mapping;
+import lombok.RequiredArgsConstructor;
 import ru.mifi.practice.hotel.dto.RoomResponse;
+import ru.mifi.practice.hotel.dto.RoomStatResponse;
 import ru.mifi.practice.hotel.model.Room;
+import ru.mifi.practice.hotel.service.BookingCounter;
 
 @org.springframework.stereotype.Component
+@RequiredArgsConstructor
 public class RoomMapper {
 
+    private final BookingCounter bookingCounter;
+
     public RoomResponse toResponse(Room room) {
         Long hotelId = room.getHotel() != null ? room.getHotel().getId() : null;
-        return new RoomResponse(room.getId(), hotelId, room.getNumber(), room.isAvailable(), room.getTimesBooked());
+        return new RoomResponse(room.getId(), hotelId, room.getNumber(), room.isAvailable(), timesBooked(room));
+    }
+
+    public RoomResponse withLiveCount(RoomResponse view) {
+        return new RoomResponse(view.id(), view.hotelId(), view.number(), view.available(),
+                bookingCounter.liveCount(view.id(), view.timesBooked()));
+    }
+
+    public RoomStatResponse toStat(Room room) {
+        return new RoomStatResponse(room.getId(), room.getNumber(), room.isAvailable(), timesBooked(room));
+    }
+
+    private int timesBooked(Room room) {
+        return bookingCounter.liveCount(room.getId(), room.getTimesBooked());
     }
 }
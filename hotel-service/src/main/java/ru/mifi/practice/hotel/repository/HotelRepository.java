@@ -1,7 +1,12 @@
 package ru.mifi.practice.hotel.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import ru.mifi.practice.hotel.model.Hotel;
 
+import java.util.List;
+
 public interface HotelRepository extends JpaRepository<Hotel, Long> {
+
+    List<Hotel> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
 }
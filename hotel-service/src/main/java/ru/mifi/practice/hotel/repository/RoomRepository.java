@@ -1,17 +1,40 @@
 package ru.mifi.practice.hotel.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import ru.mifi.practice.hotel.dto.RoomResponse;
 import ru.mifi.practice.hotel.model.Room;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface RoomRepository extends JpaRepository<Room, Long> {
 
-    List<Room> findByAvailableTrue();
+    @Query("select new ru.mifi.practice.hotel.dto.RoomResponse(r.id, r.hotel.id, r.number, r.available, r.timesBooked) "
+            + "from Room r where r.available = true and r.id > :after order by r.id asc")
+    List<RoomResponse> findAvailableViewsAfter(Long after, Limit limit);
 
-    @Query("select r from Room r where r.available = true order by r.timesBooked asc, r.id asc")
-    List<Room> findRecommended();
+    @Query("select new ru.mifi.practice.hotel.dto.RoomResponse(r.id, r.hotel.id, r.number, r.available, r.timesBooked) "
+            + "from Room r where r.id in :ids order by r.id asc")
+    List<RoomResponse> findViewsByIdIn(Collection<Long> ids);
 
-    List<Room> findAllByAvailable(Boolean available, org.springframework.data.domain.Sort sort);
+    @Query("select new ru.mifi.practice.hotel.dto.RoomResponse(r.id, r.hotel.id, r.number, r.available, r.timesBooked) "
+            + "from Room r where r.hotel.id in :hotelIds order by r.id asc")
+    List<RoomResponse> findViewsByHotelIdIn(Collection<Long> hotelIds);
+
+    @Query("select r from Room r where r.timesBooked < :timesBooked or (r.timesBooked = :timesBooked and r.id > :id) "
+            + "order by r.timesBooked desc, r.id asc")
+    List<Room> findStatsAfter(int timesBooked, Long id, Limit limit);
+
+    @Query("select r from Room r where r.available = :available "
+            + "and (r.timesBooked < :timesBooked or (r.timesBooked = :timesBooked and r.id > :id)) "
+            + "order by r.timesBooked desc, r.id asc")
+    List<Room> findStatsAfter(boolean available, int timesBooked, Long id, Limit limit);
+
+    @Query("select r.id from Room r where r.id in :ids")
+    List<Long> findExistingIds(Collection<Long> ids);
+
+    @Query("select new ru.mifi.practice.hotel.dto.RoomResponse(r.id, r.hotel.id, r.number, r.available, r.timesBooked) from Room r")
+    List<RoomResponse> findAllViews();
 }
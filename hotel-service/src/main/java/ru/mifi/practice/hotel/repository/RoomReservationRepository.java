@@ -1,10 +1,17 @@
 package ru.mifi.practice.hotel.repository;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import ru.mifi.practice.hotel.dto.ReservationSlot;
+import ru.mifi.practice.hotel.model.ReservationStatus;
 import ru.mifi.practice.hotel.model.RoomReservation;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +21,25 @@ public interface RoomReservationRepository extends JpaRepository<RoomReservation
 
     void deleteByRequestId(String requestId);
 
+    @Query("select rr.requestId from RoomReservation rr where rr.requestId in :requestIds")
+    List<String> findExistingRequestIds(Collection<String> requestIds);
+
     @Query("select rr from RoomReservation rr where rr.room.id = :roomId and rr.endDate >= :start and rr.startDate <= :end")
     List<RoomReservation> findOverlaps(Long roomId, LocalDate start, LocalDate end);
+
+    @Query("select new ru.mifi.practice.hotel.dto.ReservationSlot(rr.room.id, rr.requestId, rr.startDate, rr.endDate) from RoomReservation rr")
+    List<ReservationSlot> findAllSlots();
+
+    @Query("select rr.requestId from RoomReservation rr where rr.status = :status")
+    List<String> findRequestIdsByStatus(ReservationStatus status);
+
+    List<RoomReservation> findAllByStatus(ReservationStatus status);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select rr from RoomReservation rr where rr.requestId in :requestIds and rr.status = 'HELD' and rr.expiresAt <= :now")
+    List<RoomReservation> findExpiredHolds(Collection<String> requestIds, Instant now);
+
+    @Modifying
+    @Query("update RoomReservation rr set rr.status = 'CONFIRMED', rr.expiresAt = null where rr.requestId = :requestId and rr.status = 'HELD'")
+    int markConfirmed(String requestId);
 }
@@ -0,0 +1,92 @@
+package ru.mifi.practice.hotel.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationProvider;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+// Skips signature verification and role conversion for bearer tokens seen before. Entries are
+// keyed by the token's SHA-256 and live until the token's exp, so a cached token is never accepted
+// past the point where the decoder would reject it; tokens without exp are not cached.
+// Each request gets its own copy of the cached authentication, since the filter sets details on it.
+public class CachingJwtAuthenticationManager implements AuthenticationManager {
+
+    private final JwtAuthenticationProvider delegate;
+    private final Cache<String, JwtAuthenticationToken> verified;
+
+    public CachingJwtAuthenticationManager(JwtDecoder jwtDecoder,
+                                           JwtAuthenticationConverter jwtAuthenticationConverter,
+                                           MeterRegistry meterRegistry,
+                                           long maxSize) {
+        this.delegate = new JwtAuthenticationProvider(jwtDecoder);
+        this.delegate.setJwtAuthenticationConverter(jwtAuthenticationConverter);
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "jwt");
+        Gauge.builder("cache.hit.ratio", verified, cache -> cache.stats().hitRate())
+                .tag("cache", "jwt")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) {
+        BearerTokenAuthenticationToken bearer = (BearerTokenAuthenticationToken) authentication;
+        String digest = digest(bearer.getToken());
+        JwtAuthenticationToken cached = verified.getIfPresent(digest);
+        if (cached == null) {
+            cached = (JwtAuthenticationToken) delegate.authenticate(bearer);
+            if (cached.getToken().getExpiresAt() != null) {
+                verified.put(digest, cached);
+            }
+        }
+        JwtAuthenticationToken result = new JwtAuthenticationToken(cached.getToken(), cached.getAuthorities(), cached.getName());
+        result.setDetails(bearer.getDetails());
+        return result;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static final class UntilTokenExpiry implements Expiry<String, JwtAuthenticationToken> {
+
+        @Override
+        public long expireAfterCreate(String digest, JwtAuthenticationToken token, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), token.getToken().getExpiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String digest, JwtAuthenticationToken token, long currentTime, long currentDuration) {
+            return expireAfterCreate(digest, token, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String digest, JwtAuthenticationToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
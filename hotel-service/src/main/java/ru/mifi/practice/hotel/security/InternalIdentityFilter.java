@@ -0,0 +1,53 @@
+package ru.mifi.practice.hotel.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Optional;
+
+// Authenticates requests relayed by the gateway from the internal identity header. Requests without
+// the header fall through to the regular JWT check; a header that does not verify is rejected outright.
+public class InternalIdentityFilter extends OncePerRequestFilter {
+
+    private final InternalIdentity internalIdentity;
+    private final JwtAuthenticationConverter jwtAuthenticationConverter;
+    private final SecurityContextRepository securityContextRepository = new RequestAttributeSecurityContextRepository();
+
+    public InternalIdentityFilter(InternalIdentity internalIdentity, JwtAuthenticationConverter jwtAuthenticationConverter) {
+        this.internalIdentity = internalIdentity;
+        this.jwtAuthenticationConverter = jwtAuthenticationConverter;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(InternalIdentity.HEADER);
+        if (header == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        Optional<Jwt> identity = internalIdentity.verify(header);
+        if (identity.isEmpty()) {
+            response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"");
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(jwtAuthenticationConverter.convert(identity.get()));
+        SecurityContextHolder.setContext(context);
+        // Kept as a request attribute so the async dispatch of reactive controllers sees it too.
+        securityContextRepository.saveContext(context, request, response);
+        chain.doFilter(request, response);
+    }
+}
@@ -1,6 +1,10 @@
 package ru.mifi.practice.hotel.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.Customizer;
@@ -10,11 +14,13 @@ import org.springframework.security.core.authority.mapping.GrantedAuthoritiesMap
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.web.authentication.BearerTokenAuthenticationFilter;
 import org.springframework.security.web.SecurityFilterChain;
 
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Base64;
 
 @Configuration
@@ -22,14 +28,23 @@ import java.util.Base64;
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtAuthenticationConverter jwtAuthConverter) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   CachingJwtAuthenticationManager jwtAuthenticationManager,
+                                                   ObjectProvider<InternalIdentity> internalIdentity,
+                                                   JwtAuthenticationConverter jwtAuthenticationConverter)
+            throws Exception {
+        InternalIdentity trusted = internalIdentity.getIfAvailable();
+        if (trusted != null) {
+            http.addFilterBefore(new InternalIdentityFilter(trusted, jwtAuthenticationConverter),
+                    BearerTokenAuthenticationFilter.class);
+        }
         http
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/actuator/**", "/v3/api-docs/**", "/swagger-ui/**").permitAll()
                         .requestMatchers("/api/hotels/**", "/api/rooms/**").authenticated()
                         .anyRequest().authenticated())
-                .oauth2ResourceServer(oauth -> oauth.jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthConverter)));
+                .oauth2ResourceServer(oauth -> oauth.jwt(jwt -> jwt.authenticationManager(jwtAuthenticationManager)));
         return http.build();
     }
 
@@ -40,6 +55,23 @@ public class SecurityConfig {
         return converter;
     }
 
+    @Bean
+    @ConditionalOnProperty(name = "security.internal-identity.enabled", havingValue = "true")
+    public InternalIdentity internalIdentity(@Value("${security.internal-identity.secret}") String secret,
+                                             @Value("${security.internal-identity.ttl:60s}") Duration ttl) {
+        return new InternalIdentity(secret, ttl);
+    }
+
+    @Bean
+    public CachingJwtAuthenticationManager jwtAuthenticationManager(JwtDecoder jwtDecoder,
+                                                                    JwtAuthenticationConverter jwtAuthenticationConverter,
+                                                                    ObjectProvider<MeterRegistry> meterRegistry,
+                                                                    @Value("${security.jwt.cache.max-size:10000}") long maxSize) {
+        // web slice tests run without the metrics auto-configuration
+        return new CachingJwtAuthenticationManager(jwtDecoder, jwtAuthenticationConverter,
+                meterRegistry.getIfAvailable(SimpleMeterRegistry::new), maxSize);
+    }
+
     @Bean
     public JwtDecoder jwtDecoder(@Value("${security.jwt.secret}") String secret) {
         byte[] keyBytes;
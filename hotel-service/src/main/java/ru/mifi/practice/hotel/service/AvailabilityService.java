@@ -1,21 +1,39 @@
 package ru.mifi.practice.hotel.service;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 import ru.mifi.practice.hotel.dto.AvailabilityRequest;
 import ru.mifi.practice.hotel.dto.AvailabilityResponse;
+import ru.mifi.practice.hotel.dto.BatchAvailabilityItem;
+import ru.mifi.practice.hotel.dto.BatchAvailabilityRequest;
+import ru.mifi.practice.hotel.dto.BatchAvailabilityResponse;
+import ru.mifi.practice.hotel.dto.BatchItemResult;
+import ru.mifi.practice.hotel.dto.ReservationSlot;
+import ru.mifi.practice.hotel.dto.RoomResponse;
 import ru.mifi.practice.hotel.model.ReservationStatus;
 import ru.mifi.practice.hotel.model.Room;
 import ru.mifi.practice.hotel.model.RoomReservation;
 import ru.mifi.practice.hotel.repository.RoomRepository;
 import ru.mifi.practice.hotel.repository.RoomReservationRepository;
 
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -24,23 +42,56 @@ public class AvailabilityService {
 
     private final RoomRepository roomRepository;
     private final RoomReservationRepository reservationRepository;
+    private final ReservationIndex reservationIndex;
+    private final RoomOccupancyCalendar occupancyCalendar;
+    private final JdbcTemplate jdbcTemplate;
+    private final RoomLocks roomLocks;
+    private final BookingCounter bookingCounter;
+    private final RoomRanking roomRanking;
+    private final HoldExpiryTracker holdExpiryTracker;
+
+    @PostConstruct
+    void loadReservationIndex() {
+        List<RoomResponse> rooms = roomRepository.findAllViews();
+        occupancyCalendar.load(rooms);
+        roomRanking.load(rooms);
+        List<ReservationSlot> slots = reservationRepository.findAllSlots();
+        reservationIndex.load(slots, reservationRepository.findRequestIdsByStatus(ReservationStatus.CONFIRMED));
+        slots.forEach(occupancyCalendar::occupy);
+        reservationRepository.findAllByStatus(ReservationStatus.HELD).stream()
+                .filter(reservation -> reservation.getExpiresAt() != null)
+                .forEach(reservation -> holdExpiryTracker.track(reservation.getRequestId(), reservation.getExpiresAt()));
+        log.info("Reservation index loaded with {} reservations", reservationIndex.size());
+    }
 
     @Transactional
     public AvailabilityResponse confirmAvailability(Long roomId, AvailabilityRequest request) {
+        // The index holds every stored requestId (rebuilt from room_reservations at startup), so it is
+        // an exact idempotency filter: retries of committed holds are answered without a query and
+        // first attempts skip the lookup by requestId.
+        if (reservationIndex.isCommitted(request.requestId())) {
+            return new AvailabilityResponse(true, request.requestId());
+        }
         Room room = roomRepository.findById(roomId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Room not found"));
 
-        RoomReservation existing = reservationRepository.findByRequestId(request.requestId()).orElse(null);
-        if (existing != null) {
-            return new AvailabilityResponse(true, existing.getRequestId());
-        }
-
         validateDates(request.startDate(), request.endDate());
-        List<RoomReservation> overlaps = reservationRepository.findOverlaps(roomId, request.startDate(), request.endDate());
-        if (!overlaps.isEmpty()) {
-            log.warn("Room {} unavailable for {}-{}, overlaps {}", roomId, request.startDate(), request.endDate(), overlaps.size());
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "Room is not available for the selected dates");
+        ReservationSlot slot = new ReservationSlot(roomId, request.requestId(), request.startDate(), request.endDate());
+        boolean held = roomLocks.withRoom(roomId, () -> {
+            if (reservationIndex.find(slot.requestId()).isPresent()) {
+                return false;
+            }
+            if (reservationIndex.overlaps(roomId, slot.startDate(), slot.endDate())) {
+                log.warn("Room {} unavailable for {}-{}", roomId, slot.startDate(), slot.endDate());
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Room is not available for the selected dates");
+            }
+            hold(slot);
+            return true;
+        });
+        if (!held) {
+            return alreadyHeld(request.requestId());
         }
+        onRollback(() -> unhold(request.requestId()));
 
         RoomReservation reservation = RoomReservation.builder()
                 .room(room)
@@ -48,20 +99,91 @@ public class AvailabilityService {
                 .endDate(request.endDate())
                 .requestId(request.requestId())
                 .status(ReservationStatus.HELD)
+                .expiresAt(holdExpiryTracker.nextDeadline())
                 .build();
         reservationRepository.save(reservation);
-        room.setTimesBooked(room.getTimesBooked() + 1);
-        roomRepository.save(room);
+        onCommit(() -> {
+            reservationIndex.committed(reservation.getRequestId());
+            holdExpiryTracker.track(reservation.getRequestId(), reservation.getExpiresAt());
+            recordBookings(roomId, 1);
+        });
 
         log.info("Room {} held for request {} from {} to {}", roomId, request.requestId(), request.startDate(), request.endDate());
         return new AvailabilityResponse(true, request.requestId());
     }
 
+    @Transactional
+    public BatchAvailabilityResponse confirmBatch(BatchAvailabilityRequest request) {
+        List<BatchAvailabilityItem> items = request.items();
+        Set<Long> knownRooms = new HashSet<>(roomRepository.findExistingIds(
+                items.stream().map(BatchAvailabilityItem::roomId).collect(Collectors.toSet())));
+        Set<String> existingRequests = new HashSet<>(reservationRepository.findExistingRequestIds(
+                items.stream().map(BatchAvailabilityItem::requestId).collect(Collectors.toSet())));
+
+        List<BatchItemResult> results = new ArrayList<>(items.size());
+        List<ReservationSlot> accepted = new ArrayList<>();
+        roomLocks.withRooms(knownRooms, () -> {
+            collectHolds(items, knownRooms, existingRequests, results, accepted);
+            return null;
+        });
+
+        boolean allAvailable = results.stream().allMatch(BatchItemResult::available);
+        if (request.atomic() && !allAvailable) {
+            accepted.forEach(slot -> unhold(slot.requestId()));
+            log.warn("Atomic batch of {} holds rejected", items.size());
+            return new BatchAvailabilityResponse(false, results.stream()
+                    .map(r -> r.available() ? new BatchItemResult(r.roomId(), r.requestId(), false, "Batch aborted") : r)
+                    .toList());
+        }
+
+        onRollback(() -> accepted.forEach(slot -> unhold(slot.requestId())));
+        insertHolds(accepted);
+        log.info("Batch held {} of {} requested rooms", accepted.size(), items.size());
+        return new BatchAvailabilityResponse(allAvailable, results);
+    }
+
+    @Transactional
+    public AvailabilityResponse commit(String requestId) {
+        if (reservationRepository.markConfirmed(requestId) == 0) {
+            reservationRepository.findByRequestId(requestId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT, "Hold expired or not found"));
+            return new AvailabilityResponse(true, requestId);
+        }
+        onCommit(() -> {
+            holdExpiryTracker.untrack(requestId);
+            reservationIndex.committed(requestId);
+        });
+        log.info("Reservation {} confirmed", requestId);
+        return new AvailabilityResponse(true, requestId);
+    }
+
+    @Transactional
+    public int expireHolds(Collection<String> requestIds) {
+        List<RoomReservation> expired = reservationRepository.findExpiredHolds(requestIds, holdExpiryTracker.now());
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        reservationRepository.deleteAllByIdInBatch(expired.stream().map(RoomReservation::getId).toList());
+        List<String> expiredIds = expired.stream().map(RoomReservation::getRequestId).toList();
+        onCommit(() -> expiredIds.forEach(this::unhold));
+        return expired.size();
+    }
+
     @Transactional
     public AvailabilityResponse release(String requestId) {
-        RoomReservation reservation = reservationRepository.findByRequestId(requestId).orElse(null);
+        // a row is indexed before it is inserted and unindexed only after its delete commits
+        boolean indexed = reservationIndex.find(requestId).isPresent();
+        RoomReservation reservation = indexed ? reservationRepository.findByRequestId(requestId).orElse(null) : null;
+        if (reservation == null && indexed && !reservationIndex.isCommitted(requestId)) {
+            // the hold's own transaction has not committed yet; the release outbox retries a 503
+            throw inProgress();
+        }
         if (reservation != null) {
             reservationRepository.delete(reservation);
+            onCommit(() -> {
+                holdExpiryTracker.untrack(requestId);
+                unhold(requestId);
+            });
             log.info("Released reservation {}", requestId);
         } else {
             log.info("Release request {} ignored - not found", requestId);
@@ -69,9 +191,120 @@ public class AvailabilityService {
         return new AvailabilityResponse(true, requestId);
     }
 
+    private void collectHolds(List<BatchAvailabilityItem> items,
+                              Set<Long> knownRooms,
+                              Set<String> existingRequests,
+                              List<BatchItemResult> results,
+                              List<ReservationSlot> accepted) {
+        Set<String> seen = new HashSet<>();
+        for (BatchAvailabilityItem item : items) {
+            String reason = null;
+            if (!seen.add(item.requestId())) {
+                reason = "Duplicate requestId in batch";
+            } else if (existingRequests.contains(item.requestId()) || reservationIndex.isCommitted(item.requestId())) {
+                results.add(new BatchItemResult(item.roomId(), item.requestId(), true, null));
+                continue;
+            } else if (reservationIndex.find(item.requestId()).isPresent()) {
+                reason = "Hold for this requestId is still in progress";
+            } else if (!knownRooms.contains(item.roomId())) {
+                reason = "Room not found";
+            } else if (item.endDate().isBefore(item.startDate())) {
+                reason = "Invalid date range";
+            } else if (reservationIndex.overlaps(item.roomId(), item.startDate(), item.endDate())) {
+                reason = "Room is not available for the selected dates";
+            }
+            if (reason == null) {
+                ReservationSlot slot = new ReservationSlot(item.roomId(), item.requestId(), item.startDate(), item.endDate());
+                hold(slot);
+                accepted.add(slot);
+            }
+            results.add(new BatchItemResult(item.roomId(), item.requestId(), reason == null, reason));
+        }
+    }
+
+    private void insertHolds(List<ReservationSlot> slots) {
+        if (slots.isEmpty()) {
+            return;
+        }
+        Instant expiresAt = holdExpiryTracker.nextDeadline();
+        jdbcTemplate.batchUpdate(
+                "insert into room_reservations (room_id, start_date, end_date, request_id, status, expires_at) values (?, ?, ?, ?, ?, ?)",
+                slots, slots.size(), (ps, slot) -> {
+                    ps.setLong(1, slot.roomId());
+                    ps.setObject(2, slot.startDate());
+                    ps.setObject(3, slot.endDate());
+                    ps.setString(4, slot.requestId());
+                    ps.setString(5, ReservationStatus.HELD.name());
+                    ps.setTimestamp(6, Timestamp.from(expiresAt));
+                });
+        Map<Long, Long> holdsPerRoom = slots.stream()
+                .collect(Collectors.groupingBy(ReservationSlot::roomId, Collectors.counting()));
+        onCommit(() -> {
+            slots.forEach(slot -> {
+                reservationIndex.committed(slot.requestId());
+                holdExpiryTracker.track(slot.requestId(), expiresAt);
+            });
+            holdsPerRoom.forEach(this::recordBookings);
+        });
+    }
+
+    // Indexed by another attempt: a committed row answers the retry, otherwise that attempt is still
+    // in flight and its hold may yet roll back, so the caller retries instead of trusting it.
+    private AvailabilityResponse alreadyHeld(String requestId) {
+        if (reservationIndex.isCommitted(requestId) || reservationRepository.findByRequestId(requestId).isPresent()) {
+            return new AvailabilityResponse(true, requestId);
+        }
+        throw inProgress();
+    }
+
+    private static ResponseStatusException inProgress() {
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Hold for this request is still in progress");
+    }
+
+    private void recordBookings(Long roomId, long count) {
+        bookingCounter.add(roomId, count);
+        roomRanking.booked(roomId, count);
+    }
+
+    private void hold(ReservationSlot slot) {
+        reservationIndex.add(slot);
+        occupancyCalendar.occupy(slot);
+    }
+
+    private void unhold(String requestId) {
+        reservationIndex.remove(requestId).ifPresent(occupancyCalendar::free);
+    }
+
     private void validateDates(LocalDate start, LocalDate end) {
         if (start == null || end == null || end.isBefore(start)) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid date range");
         }
     }
+
+    private void onCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void onRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
 }
@@ -0,0 +1,59 @@
+package ru.mifi.practice.hotel.service;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Version of the hotel and room catalog that the gateway's response cache is keyed on. It lives in
+// one catalog_version row, so every instance reports the same sequence, and is raised in the writer's
+// transaction: a rolled-back change leaves it alone. Each instance serves the last value it read,
+// never one newer than the rows it then reads; bumps from other instances show up after refresh().
+@Component
+public class CatalogVersion {
+
+    public static final String HEADER = "X-Catalog-Version";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicLong seen = new AtomicLong();
+
+    public CatalogVersion(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Seeded with the time so a fresh database does not start below what the gateway has already seen.
+        try {
+            jdbcTemplate.update("insert into catalog_version (id, version) select 1, ? "
+                    + "where not exists (select 1 from catalog_version where id = 1)", System.currentTimeMillis());
+        } catch (DuplicateKeyException ex) {
+            // another instance seeded it first
+        }
+        refresh();
+    }
+
+    public long current() {
+        return seen.get();
+    }
+
+    public void bump() {
+        jdbcTemplate.update("update catalog_version set version = version + 1 where id = 1");
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                refresh();
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${hotel.catalog-version.refresh-interval:1s}")
+    public void refresh() {
+        Long version = jdbcTemplate.queryForObject("select version from catalog_version where id = 1", Long.class);
+        seen.accumulateAndGet(version, Math::max);
+    }
+}
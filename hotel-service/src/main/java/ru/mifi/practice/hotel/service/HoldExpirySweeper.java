@@ -0,0 +1,52 @@
+package ru.mifi.practice.hotel.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@Slf4j
+public class HoldExpirySweeper {
+
+    private final HoldExpiryTracker tracker;
+    private final AvailabilityService availabilityService;
+    private final int batchSize;
+    private final Counter expired;
+
+    public HoldExpirySweeper(HoldExpiryTracker tracker,
+                             AvailabilityService availabilityService,
+                             MeterRegistry meterRegistry,
+                             @Value("${hotel.holds.sweep-batch-size:500}") int batchSize) {
+        this.tracker = tracker;
+        this.availabilityService = availabilityService;
+        this.batchSize = batchSize;
+        this.expired = Counter.builder("hotel.holds.expired")
+                .description("HELD reservations deleted after their TTL")
+                .register(meterRegistry);
+        Gauge.builder("hotel.holds.pending", tracker, HoldExpiryTracker::pending)
+                .description("HELD reservations waiting for commit or expiry")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${hotel.holds.tick:1s}")
+    public void sweep() {
+        List<String> due = tracker.due();
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<String> batch = due.subList(from, Math.min(from + batchSize, due.size()));
+            try {
+                int removed = availabilityService.expireHolds(batch);
+                expired.increment(removed);
+                log.info("Expired {} of {} due holds", removed, batch.size());
+            } catch (RuntimeException ex) {
+                log.warn("Hold expiry batch of {} failed, rescheduling: {}", batch.size(), ex.getMessage());
+                batch.forEach(requestId -> tracker.track(requestId, tracker.now()));
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package ru.mifi.practice.hotel.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+@Component
+public class HoldExpiryTracker {
+
+    private final Duration ttl;
+    private final Clock clock;
+    private final HoldExpiryWheel wheel;
+
+    @Autowired
+    public HoldExpiryTracker(@Value("${hotel.holds.ttl:15m}") Duration ttl,
+                             @Value("${hotel.holds.tick:1s}") Duration tick) {
+        this(ttl, tick, Clock.systemUTC());
+    }
+
+    HoldExpiryTracker(Duration ttl, Duration tick, Clock clock) {
+        this.ttl = ttl;
+        this.clock = clock;
+        this.wheel = new HoldExpiryWheel(tick.toMillis(), clock.millis());
+    }
+
+    public Instant nextDeadline() {
+        return clock.instant().plus(ttl);
+    }
+
+    public Instant now() {
+        return clock.instant();
+    }
+
+    public void track(String requestId, Instant expiresAt) {
+        wheel.schedule(requestId, expiresAt.toEpochMilli());
+    }
+
+    public void untrack(String requestId) {
+        wheel.cancel(requestId);
+    }
+
+    public List<String> due() {
+        return wheel.advance(clock.millis());
+    }
+
+    public int pending() {
+        return wheel.pending();
+    }
+}
@@ -0,0 +1,110 @@
+package ru.mifi.practice.hotel.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Hierarchical timing wheel: LEVELS wheels of 64 buckets, each level 64 times coarser than the one below.
+// A deadline is placed on the lowest level whose bucket has not been passed yet and cascades down as
+// time reaches it, so scheduling and cancelling are O(1) and a tick only touches one bucket per level.
+// Cancellation is lazy: the live deadline is kept in a map and stale bucket entries are dropped when reached.
+class HoldExpiryWheel {
+
+    private static final int BITS = 6;
+    private static final int SIZE = 1 << BITS;
+    private static final int MASK = SIZE - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickMillis;
+    private final ArrayDeque<Entry>[][] buckets;
+    private final Map<String, Long> deadlines = new ConcurrentHashMap<>();
+    private final List<String> overdue = new ArrayList<>();
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    HoldExpiryWheel(long tickMillis, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+        this.buckets = new ArrayDeque[LEVELS][SIZE];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int i = 0; i < SIZE; i++) {
+                buckets[level][i] = new ArrayDeque<>();
+            }
+        }
+    }
+
+    synchronized void schedule(String key, long deadlineMillis) {
+        long deadlineTick = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+        deadlines.put(key, deadlineTick);
+        place(new Entry(key, deadlineTick));
+    }
+
+    void cancel(String key) {
+        deadlines.remove(key);
+    }
+
+    int pending() {
+        return deadlines.size();
+    }
+
+    synchronized List<String> advance(long nowMillis) {
+        List<String> expired = new ArrayList<>();
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (BITS * level)) - 1)) == 0) {
+                    cascade(level);
+                }
+            }
+            ArrayDeque<Entry> bucket = buckets[0][(int) (currentTick & MASK)];
+            Entry entry;
+            while ((entry = bucket.poll()) != null) {
+                if (deadlines.remove(entry.key(), entry.deadlineTick())) {
+                    expired.add(entry.key());
+                }
+            }
+        }
+        expired.addAll(overdue);
+        overdue.clear();
+        return expired;
+    }
+
+    private void cascade(int level) {
+        ArrayDeque<Entry> bucket = buckets[level][(int) ((currentTick >>> (BITS * level)) & MASK)];
+        List<Entry> moved = new ArrayList<>(bucket);
+        bucket.clear();
+        for (Entry entry : moved) {
+            if (isLive(entry)) {
+                place(entry);
+            }
+        }
+    }
+
+    private void place(Entry entry) {
+        long deadlineTick = entry.deadlineTick();
+        if (deadlineTick <= currentTick) {
+            if (deadlines.remove(entry.key(), deadlineTick)) {
+                overdue.add(entry.key());
+            }
+            return;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && (deadlineTick >>> (BITS * (level + 1))) != (currentTick >>> (BITS * (level + 1)))) {
+            level++;
+        }
+        buckets[level][(int) ((deadlineTick >>> (BITS * level)) & MASK)].add(entry);
+    }
+
+    private boolean isLive(Entry entry) {
+        return Long.valueOf(entry.deadlineTick()).equals(deadlines.get(entry.key()));
+    }
+
+    private record Entry(String key, long deadlineTick) {
+    }
+}
@@ -4,16 +4,25 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.mifi.practice.hotel.dto.HotelRequest;
+import ru.mifi.practice.hotel.dto.HotelResponse;
+import ru.mifi.practice.hotel.dto.RoomResponse;
+import ru.mifi.practice.hotel.mapper.HotelMapper;
 import ru.mifi.practice.hotel.model.Hotel;
 import ru.mifi.practice.hotel.repository.HotelRepository;
+import ru.mifi.practice.hotel.repository.RoomRepository;
 
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class HotelCrudService {
 
     private final HotelRepository hotelRepository;
+    private final RoomRepository roomRepository;
+    private final HotelMapper hotelMapper;
+    private final CatalogVersion catalogVersion;
 
     @Transactional
     public Hotel create(HotelRequest request) {
@@ -21,11 +30,23 @@ public class HotelCrudService {
                 .name(request.name())
                 .address(request.address())
                 .build();
-        return hotelRepository.save(hotel);
+        Hotel saved = hotelRepository.save(hotel);
+        catalogVersion.bump();
+        return saved;
     }
 
+    // Two statements per page: the hotels, then all of their rooms as projections.
     @Transactional(readOnly = true)
-    public List<Hotel> findAll() {
-        return hotelRepository.findAll();
+    public List<HotelResponse> findPage(Long after, int limit) {
+        List<Hotel> hotels = hotelRepository.findByIdGreaterThanOrderByIdAsc(Paging.after(after), Paging.limit(limit));
+        if (hotels.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, List<RoomResponse>> roomsByHotel = roomRepository
+                .findViewsByHotelIdIn(hotels.stream().map(Hotel::getId).toList()).stream()
+                .collect(Collectors.groupingBy(RoomResponse::hotelId));
+        return hotels.stream()
+                .map(hotel -> hotelMapper.toResponse(hotel, roomsByHotel.getOrDefault(hotel.getId(), List.of())))
+                .toList();
     }
 }
@@ -0,0 +1,24 @@
+package ru.mifi.practice.hotel.service;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+final class Paging {
+
+    static final int MAX_LIMIT = 500;
+
+    private Paging() {
+    }
+
+    static Limit limit(int requested) {
+        if (requested < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be positive");
+        }
+        return Limit.of(Math.min(requested, MAX_LIMIT));
+    }
+
+    static long after(Long cursor) {
+        return cursor == null ? 0L : cursor;
+    }
+}
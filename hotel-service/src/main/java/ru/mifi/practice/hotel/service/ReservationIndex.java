@@ -0,0 +1,142 @@
+package ru.mifi.practice.hotel.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.mifi.practice.hotel.dto.ReservationSlot;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-room reservations kept as non-overlapping epoch-day ranges sorted by start,
+// so an overlap check is a single floor lookup. The database stays the durable record.
+// A hold is indexed before its row commits, so it blocks overlapping holds at once; it only
+// counts as an existing request once committed() has been called after the commit.
+// Rows loaded from the database may already overlap (double bookings from before the index);
+// those are kept aside and scanned, so they still block and never hide each other.
+@Component
+@Slf4j
+public class ReservationIndex {
+
+    private final Map<Long, RoomTimeline> timelines = new ConcurrentHashMap<>();
+    private final Map<String, ReservationSlot> byRequest = new ConcurrentHashMap<>();
+    private final Set<String> committed = ConcurrentHashMap.newKeySet();
+
+    // Only confirmed reservations count as committed: a loaded hold may still be released or expire.
+    public void load(Collection<ReservationSlot> slots, Collection<String> confirmedRequestIds) {
+        timelines.clear();
+        byRequest.clear();
+        committed.clear();
+        slots.forEach(slot -> {
+            byRequest.put(slot.requestId(), slot);
+            RoomTimeline timeline = timelines.computeIfAbsent(slot.roomId(), id -> new RoomTimeline());
+            if (!timeline.addIfDisjoint(slot)) {
+                log.warn("Reservation {} overlaps another one in room {} for {}-{}",
+                        slot.requestId(), slot.roomId(), slot.startDate(), slot.endDate());
+                timeline.addOverlapping(slot);
+            }
+        });
+        confirmedRequestIds.stream().filter(byRequest::containsKey).forEach(committed::add);
+    }
+
+    public boolean overlaps(Long roomId, LocalDate start, LocalDate end) {
+        RoomTimeline timeline = timelines.get(roomId);
+        return timeline != null && timeline.overlaps(start.toEpochDay(), end.toEpochDay());
+    }
+
+    public void add(ReservationSlot slot) {
+        byRequest.put(slot.requestId(), slot);
+        timelines.computeIfAbsent(slot.roomId(), id -> new RoomTimeline()).add(slot);
+    }
+
+    public void committed(String requestId) {
+        if (byRequest.containsKey(requestId)) {
+            committed.add(requestId);
+        }
+    }
+
+    public boolean isCommitted(String requestId) {
+        return committed.contains(requestId);
+    }
+
+    public Optional<ReservationSlot> remove(String requestId) {
+        committed.remove(requestId);
+        ReservationSlot slot = byRequest.remove(requestId);
+        if (slot == null) {
+            return Optional.empty();
+        }
+        RoomTimeline timeline = timelines.get(slot.roomId());
+        if (timeline != null) {
+            timeline.remove(slot);
+        }
+        return Optional.of(slot);
+    }
+
+    public Optional<ReservationSlot> find(String requestId) {
+        return Optional.ofNullable(byRequest.get(requestId));
+    }
+
+    public List<ReservationSlot> slots(Long roomId) {
+        RoomTimeline timeline = timelines.get(roomId);
+        return timeline == null ? List.of() : timeline.slots();
+    }
+
+    public int size() {
+        return byRequest.size();
+    }
+
+    private static final class RoomTimeline {
+
+        private final TreeMap<Long, ReservationSlot> byStart = new TreeMap<>();
+        // loaded slots that overlap one in byStart; empty unless the database held double bookings
+        private final List<ReservationSlot> overlapping = new ArrayList<>();
+
+        synchronized boolean overlaps(long start, long end) {
+            Map.Entry<Long, ReservationSlot> floor = byStart.floorEntry(end);
+            if (floor != null && floor.getValue().endDate().toEpochDay() >= start) {
+                return true;
+            }
+            for (ReservationSlot slot : overlapping) {
+                if (slot.startDate().toEpochDay() <= end && slot.endDate().toEpochDay() >= start) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Callers check overlaps() under the room lock first, so byStart stays disjoint.
+        synchronized void add(ReservationSlot slot) {
+            byStart.put(slot.startDate().toEpochDay(), slot);
+        }
+
+        synchronized boolean addIfDisjoint(ReservationSlot slot) {
+            if (overlaps(slot.startDate().toEpochDay(), slot.endDate().toEpochDay())) {
+                return false;
+            }
+            add(slot);
+            return true;
+        }
+
+        synchronized void addOverlapping(ReservationSlot slot) {
+            overlapping.add(slot);
+        }
+
+        synchronized void remove(ReservationSlot slot) {
+            if (!byStart.remove(slot.startDate().toEpochDay(), slot)) {
+                overlapping.remove(slot);
+            }
+        }
+
+        synchronized List<ReservationSlot> slots() {
+            List<ReservationSlot> all = new ArrayList<>(byStart.values());
+            all.addAll(overlapping);
+            return all;
+        }
+    }
+}
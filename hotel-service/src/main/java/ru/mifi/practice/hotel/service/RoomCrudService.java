@@ -4,13 +4,18 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 import ru.mifi.practice.hotel.dto.RoomRequest;
+import ru.mifi.practice.hotel.dto.RoomResponse;
+import ru.mifi.practice.hotel.mapper.RoomMapper;
 import ru.mifi.practice.hotel.model.Hotel;
 import ru.mifi.practice.hotel.model.Room;
 import ru.mifi.practice.hotel.repository.HotelRepository;
 import ru.mifi.practice.hotel.repository.RoomRepository;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @Service
@@ -19,6 +24,10 @@ public class RoomCrudService {
 
     private final RoomRepository roomRepository;
     private final HotelRepository hotelRepository;
+    private final RoomOccupancyCalendar occupancyCalendar;
+    private final RoomRanking roomRanking;
+    private final RoomMapper roomMapper;
+    private final CatalogVersion catalogVersion;
 
     @Transactional
     public Room create(RoomRequest request) {
@@ -30,24 +39,65 @@ public class RoomCrudService {
                 .available(request.available())
                 .timesBooked(0)
                 .build();
-        return roomRepository.save(room);
+        Room saved = roomRepository.save(room);
+        RoomResponse view = roomMapper.toResponse(saved);
+        // searches and rankings read these without a transaction, so a rolled-back room must never reach them
+        onCommit(() -> {
+            occupancyCalendar.registerRoom(view.id(), view.hotelId(), view.available());
+            roomRanking.update(view);
+        });
+        catalogVersion.bump();
+        return saved;
     }
 
     @Transactional(readOnly = true)
-    public List<Room> findAllAvailable() {
-        return roomRepository.findByAvailableTrue();
+    public List<RoomResponse> findFree(LocalDate start, LocalDate end, Long hotelId, Long after, int limit) {
+        List<Long> ids = occupancyCalendar.findFree(start, end, hotelId, Paging.after(after), Paging.limit(limit).max());
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return roomRepository.findViewsByIdIn(ids);
     }
 
     @Transactional(readOnly = true)
-    public List<Room> recommended() {
-        return roomRepository.findRecommended();
+    public List<RoomResponse> findAvailablePage(Long after, int limit) {
+        return roomRepository.findAvailableViewsAfter(Paging.after(after), Paging.limit(limit));
+    }
+
+    public List<RoomResponse> recommended(Integer afterBooked, Long after, int limit, Long hotelId) {
+        if ((after == null) != (afterBooked == null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "after and afterBooked go together");
+        }
+        return roomRanking.top(afterBooked, after, Paging.limit(limit).max(), hotelId);
     }
 
+    // Keyset on the persisted (times_booked desc, id) so pages stay stable between counter flushes;
+    // the mapper still reports the live count.
     @Transactional(readOnly = true)
-    public List<Room> stats(Boolean available) {
-        if (available == null) {
-            return roomRepository.findAll(org.springframework.data.domain.Sort.by(org.springframework.data.domain.Sort.Direction.DESC, "timesBooked"));
+    public List<Room> statsPage(Boolean available, Long after, int limit) {
+        int timesBooked = Integer.MAX_VALUE;
+        long id = 0L;
+        if (after != null) {
+            Room cursor = roomRepository.findById(after)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown cursor"));
+            timesBooked = cursor.getTimesBooked();
+            id = cursor.getId();
+        }
+        return available == null
+                ? roomRepository.findStatsAfter(timesBooked, id, Paging.limit(limit))
+                : roomRepository.findStatsAfter(available, timesBooked, id, Paging.limit(limit));
+    }
+
+    private void onCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
         }
-        return roomRepository.findAllByAvailable(available, org.springframework.data.domain.Sort.by(org.springframework.data.domain.Sort.Direction.DESC, "timesBooked"));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
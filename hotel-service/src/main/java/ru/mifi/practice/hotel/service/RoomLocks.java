@@ -0,0 +1,53 @@
+package ru.mifi.practice.hotel.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+@Component
+public class RoomLocks {
+
+    private final ReentrantLock[] stripes;
+
+    public RoomLocks(@Value("${hotel.locks.stripes:256}") int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public <T> T withRoom(Long roomId, Supplier<T> action) {
+        ReentrantLock lock = stripes[stripe(roomId)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public <T> T withRooms(Collection<Long> roomIds, Supplier<T> action) {
+        int[] order = roomIds.stream().mapToInt(this::stripe).distinct().sorted().toArray();
+        int locked = 0;
+        try {
+            for (int stripe : order) {
+                stripes[stripe].lock();
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[order[i]].unlock();
+            }
+        }
+    }
+
+    private int stripe(Long roomId) {
+        int h = Long.hashCode(roomId);
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+}
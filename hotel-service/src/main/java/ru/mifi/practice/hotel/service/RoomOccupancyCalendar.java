@@ -0,0 +1,178 @@
+package ru.mifi.practice.hotel.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import ru.mifi.practice.hotel.dto.ReservationSlot;
+import ru.mifi.practice.hotel.dto.RoomResponse;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+// One bit per room per day for the horizon-days starting today. Day d is bit d mod horizon, so the
+// window moves without copying: roll() clears the days that fell behind today, whose bits now stand
+// for days at the far end, and marks those again from the reservation index. Searches read the words
+// without locking, so the result is advisory; confirm-availability stays the authoritative check.
+@Component
+public class RoomOccupancyCalendar {
+
+    private final ReservationIndex reservationIndex;
+    private final int horizonDays;
+    private final Clock clock;
+    private final Map<Long, RoomDays> rooms = new ConcurrentHashMap<>();
+    private volatile long firstDay;
+
+    @Autowired
+    public RoomOccupancyCalendar(ReservationIndex reservationIndex,
+                                 @Value("${hotel.occupancy.horizon-days:730}") int horizonDays) {
+        this(reservationIndex, horizonDays, Clock.systemDefaultZone());
+    }
+
+    RoomOccupancyCalendar(ReservationIndex reservationIndex, int horizonDays, Clock clock) {
+        this.reservationIndex = reservationIndex;
+        this.horizonDays = horizonDays;
+        this.clock = clock;
+        this.firstDay = LocalDate.now(clock).toEpochDay();
+    }
+
+    public void load(Collection<RoomResponse> roomViews) {
+        rooms.clear();
+        roomViews.forEach(room -> registerRoom(room.id(), room.hotelId(), room.available()));
+    }
+
+    public void registerRoom(Long roomId, Long hotelId, boolean available) {
+        rooms.compute(roomId, (id, existing) -> existing != null
+                ? existing.withMeta(hotelId, available)
+                : new RoomDays(hotelId, available, new long[(horizonDays + 63) >>> 6]));
+    }
+
+    public void occupy(ReservationSlot slot) {
+        mark(slot, true);
+    }
+
+    public void free(ReservationSlot slot) {
+        mark(slot, false);
+    }
+
+    // Free room ids above the cursor in id order, at most limit of them.
+    public List<Long> findFree(LocalDate start, LocalDate end, Long hotelId, long after, int limit) {
+        long first = firstDay;
+        if (start == null || end == null || end.isBefore(start) || end.toEpochDay() < first) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid date range");
+        }
+        if (end.toEpochDay() >= first + horizonDays) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Date range exceeds search horizon of " + horizonDays + " days");
+        }
+        List<int[]> ranges = positions(Math.max(first, start.toEpochDay()), end.toEpochDay());
+        int count = 0;
+        for (int[] range : ranges) {
+            count += (range[1] >>> 6) - (range[0] >>> 6) + 1;
+        }
+        int[] words = new int[count];
+        long[] masks = new long[count];
+        int next = 0;
+        for (int[] range : ranges) {
+            for (int word = range[0] >>> 6; word <= range[1] >>> 6; word++, next++) {
+                words[next] = word;
+                masks[next] = wordMask(word, range[0], range[1]);
+            }
+        }
+
+        List<Long> free = new ArrayList<>();
+        rooms.forEach((roomId, room) -> {
+            if (roomId <= after || !room.available() || (hotelId != null && !hotelId.equals(room.hotelId()))) {
+                return;
+            }
+            long[] bits = room.bits();
+            for (int i = 0; i < words.length; i++) {
+                if ((bits[words[i]] & masks[i]) != 0) {
+                    return;
+                }
+            }
+            free.add(roomId);
+        });
+        free.sort(null);
+        return free.size() > limit ? List.copyOf(free.subList(0, limit)) : free;
+    }
+
+    // Moves the window to start today. Runs more often than daily so a missed tick costs minutes, not a day.
+    @Scheduled(fixedDelayString = "${hotel.occupancy.roll-interval:1m}")
+    public void roll() {
+        long today = LocalDate.now(clock).toEpochDay();
+        long previous = firstDay;
+        if (today <= previous) {
+            return;
+        }
+        firstDay = today;
+        long from = Math.max(today, previous + horizonDays);
+        long to = today + horizonDays - 1;
+        rooms.forEach((roomId, room) -> {
+            long[] bits = room.bits();
+            synchronized (bits) {
+                apply(bits, from, to, false);
+                // Read under the room's lock: a slot freed concurrently has already left the index.
+                for (ReservationSlot slot : reservationIndex.slots(roomId)) {
+                    apply(bits, Math.max(from, slot.startDate().toEpochDay()), Math.min(to, slot.endDate().toEpochDay()), true);
+                }
+            }
+        });
+    }
+
+    private void mark(ReservationSlot slot, boolean occupied) {
+        RoomDays room = rooms.get(slot.roomId());
+        if (room == null) {
+            return;
+        }
+        long[] bits = room.bits();
+        synchronized (bits) {
+            long first = firstDay;
+            apply(bits, Math.max(first, slot.startDate().toEpochDay()),
+                    Math.min(first + horizonDays - 1, slot.endDate().toEpochDay()), occupied);
+        }
+    }
+
+    private void apply(long[] bits, long fromDay, long toDay, boolean occupied) {
+        if (fromDay > toDay) {
+            return;
+        }
+        for (int[] range : positions(fromDay, toDay)) {
+            for (int word = range[0] >>> 6; word <= range[1] >>> 6; word++) {
+                long mask = wordMask(word, range[0], range[1]);
+                bits[word] = occupied ? bits[word] | mask : bits[word] & ~mask;
+            }
+        }
+    }
+
+    // Bit positions of at most horizon-days consecutive days: one range, or two when it wraps around.
+    private List<int[]> positions(long fromDay, long toDay) {
+        int from = (int) Math.floorMod(fromDay, (long) horizonDays);
+        int to = (int) Math.floorMod(toDay, (long) horizonDays);
+        return from <= to
+                ? List.of(new int[]{from, to})
+                : List.of(new int[]{from, horizonDays - 1}, new int[]{0, to});
+    }
+
+    private static long wordMask(int word, int from, int to) {
+        int lo = Math.max(from, word << 6) & 63;
+        int hi = Math.min(to, (word << 6) + 63) & 63;
+        return (-1L >>> (63 - hi)) & (-1L << lo);
+    }
+
+    private record RoomDays(Long hotelId, boolean available, long[] bits) {
+
+        RoomDays withMeta(Long newHotelId, boolean newAvailable) {
+            return Objects.equals(hotelId, newHotelId) && available == newAvailable
+                    ? this
+                    : new RoomDays(newHotelId, newAvailable, bits);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package ru.mifi.practice.hotel.service;
+
+import org.springframework.stereotype.Component;
+import ru.mifi.practice.hotel.dto.RoomResponse;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Available rooms ordered by (timesBooked, id), globally and per hotel, so recommend reads
+// the head of a skiplist instead of sorting the table. Updates for one room are serialized
+// by the compute on its key; a concurrent reader may briefly miss a room that is being moved.
+@Component
+public class RoomRanking {
+
+    private static final Comparator<RoomResponse> ORDER =
+            Comparator.comparingInt(RoomResponse::timesBooked).thenComparing(RoomResponse::id);
+
+    private final Map<Long, RoomResponse> rooms = new ConcurrentHashMap<>();
+    private final NavigableSet<RoomResponse> ranked = new ConcurrentSkipListSet<>(ORDER);
+    private final Map<Long, NavigableSet<RoomResponse>> rankedByHotel = new ConcurrentHashMap<>();
+
+    public void load(Collection<RoomResponse> views) {
+        rooms.clear();
+        ranked.clear();
+        rankedByHotel.clear();
+        views.forEach(this::update);
+    }
+
+    public void update(RoomResponse room) {
+        rooms.compute(room.id(), (id, previous) -> {
+            replace(previous, room);
+            return room;
+        });
+    }
+
+    public void booked(Long roomId, long count) {
+        rooms.computeIfPresent(roomId, (id, previous) -> {
+            RoomResponse next = new RoomResponse(previous.id(), previous.hotelId(), previous.number(),
+                    previous.available(), (int) (previous.timesBooked() + count));
+            replace(previous, next);
+            return next;
+        });
+    }
+
+    // The cursor is the (timesBooked, id) of the last row the client saw, not the room's current
+    // position: a room booked between pages moves, and the next page must still start where the last ended.
+    public List<RoomResponse> top(Integer afterBooked, Long after, int limit, Long hotelId) {
+        NavigableSet<RoomResponse> source = hotelId == null ? ranked : rankedByHotel.get(hotelId);
+        if (source == null) {
+            return List.of();
+        }
+        if (after != null) {
+            source = source.tailSet(new RoomResponse(after, null, null, true, afterBooked), false);
+        }
+        return source.stream().limit(limit).toList();
+    }
+
+    private void replace(RoomResponse previous, RoomResponse next) {
+        if (previous != null) {
+            ranked.remove(previous);
+            hotelRanking(previous.hotelId()).remove(previous);
+        }
+        if (next.available()) {
+            ranked.add(next);
+            hotelRanking(next.hotelId()).add(next);
+        }
+    }
+
+    private NavigableSet<RoomResponse> hotelRanking(Long hotelId) {
+        return rankedByHotel.computeIfAbsent(hotelId, id -> new ConcurrentSkipListSet<>(ORDER));
+    }
+}
@@ -0,0 +1,28 @@
+package ru.mifi.practice.hotel.util;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.mifi.practice.hotel.service.CatalogVersion;
+
+import java.io.IOException;
+
+// The version is read before the request is handled: a change committed while a list is being read
+// leaves that response tagged with the older version, and the gateway drops it once it sees the newer one.
+@Component
+@RequiredArgsConstructor
+public class CatalogVersionFilter extends OncePerRequestFilter {
+
+    private final CatalogVersion catalogVersion;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        response.setHeader(CatalogVersion.HEADER, Long.toString(catalogVersion.current()));
+        filterChain.doFilter(request, response);
+    }
+}
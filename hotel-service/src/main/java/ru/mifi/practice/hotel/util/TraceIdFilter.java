@@ -25,13 +25,12 @@ public class TraceIdFilter extends OncePerRequestFilter {
                 .filter(id -> !id.isBlank())
                 .orElse(UUID.randomUUID().toString());
         MDC.put(MDC_KEY, traceId);
-        TraceIdHolder.set(traceId);
+        TraceIdHolder.set(request, traceId);
         response.setHeader(HEADER, traceId);
         try {
             filterChain.doFilter(request, response);
         } finally {
             MDC.remove(MDC_KEY);
-            TraceIdHolder.clear();
         }
     }
 }
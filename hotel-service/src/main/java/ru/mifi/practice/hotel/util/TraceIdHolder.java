@@ -1,19 +1,19 @@
 package ru.mifi.practice.hotel.util;
 
+import jakarta.servlet.ServletRequest;
+
+// The trace id lives on the request rather than in a ThreadLocal: it follows async dispatches
+// and costs nothing per thread when requests run on virtual threads.
 public final class TraceIdHolder {
-    private static final ThreadLocal<String> TRACE = new ThreadLocal<>();
+    private static final String ATTRIBUTE = TraceIdHolder.class.getName();
 
     private TraceIdHolder() {}
 
-    public static void set(String traceId) {
-        TRACE.set(traceId);
-    }
-
-    public static String get() {
-        return TRACE.get();
+    public static void set(ServletRequest request, String traceId) {
+        request.setAttribute(ATTRIBUTE, traceId);
     }
 
-    public static void clear() {
-        TRACE.remove();
+    public static String get(ServletRequest request) {
+        return (String) request.getAttribute(ATTRIBUTE);
     }
 }
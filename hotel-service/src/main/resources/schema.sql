@@ -1,13 +1,13 @@
 -- Create Hotels table
 CREATE TABLE IF NOT EXISTS hotels (
-    id BIGINT PRIMARY KEY,
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
     name VARCHAR(255) NOT NULL,
     address VARCHAR(500) NOT NULL
 );
 
 -- Create Rooms table
 CREATE TABLE IF NOT EXISTS rooms (
-    id BIGINT PRIMARY KEY,
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
     hotel_id BIGINT NOT NULL,
     number VARCHAR(20) NOT NULL,
     available BOOLEAN DEFAULT TRUE,
@@ -15,6 +15,15 @@ CREATE TABLE IF NOT EXISTS rooms (
     FOREIGN KEY (hotel_id) REFERENCES hotels(id)
 );
 
+-- Catalog version shared by all hotel-service instances (one row, id = 1)
+CREATE TABLE IF NOT EXISTS catalog_version (
+    id INT PRIMARY KEY,
+    version BIGINT NOT NULL
+);
+
 -- Create indexes for better query performance
 CREATE INDEX IF NOT EXISTS idx_rooms_hotel_id ON rooms(hotel_id);
 CREATE INDEX IF NOT EXISTS idx_rooms_available ON rooms(available);
+CREATE INDEX IF NOT EXISTS idx_rooms_available_id ON rooms(available, id);
+CREATE INDEX IF NOT EXISTS idx_rooms_times_booked_id ON rooms(times_booked DESC, id);
+CREATE INDEX IF NOT EXISTS idx_rooms_available_times_booked_id ON rooms(available, times_booked DESC, id);
@@ -10,14 +10,17 @@ import org.springframework.http.MediaType;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.mifi.practice.hotel.mapper.RoomMapper;
 import ru.mifi.practice.hotel.security.SecurityConfig;
+import ru.mifi.practice.hotel.service.BookingCounter;
+import ru.mifi.practice.hotel.service.CatalogVersion;
 import ru.mifi.practice.hotel.service.RoomCrudService;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = RoomController.class)
-@Import(SecurityConfig.class)
+@Import({SecurityConfig.class, RoomMapper.class})
 class RoomControllerSecurityTest {
 
     @Autowired
@@ -29,6 +32,12 @@ class RoomControllerSecurityTest {
     @MockBean
     JwtDecoder jwtDecoder;
 
+    @MockBean
+    BookingCounter bookingCounter;
+
+    @MockBean
+    CatalogVersion catalogVersion;
+
     @Test
     void unauthorizedWithoutToken() throws Exception {
         mockMvc.perform(get("/api/rooms"))
@@ -37,7 +46,7 @@ class RoomControllerSecurityTest {
 
     @Test
     void adminCanAccessStats() throws Exception {
-        Mockito.when(roomCrudService.stats(null)).thenReturn(java.util.Collections.emptyList());
+        Mockito.when(roomCrudService.statsPage(null, null, 50)).thenReturn(java.util.Collections.emptyList());
 
         mockMvc.perform(get("/api/rooms/stats")
                         .with(SecurityMockMvcRequestPostProcessors.jwt().authorities(() -> "ROLE_ADMIN")))
@@ -0,0 +1,78 @@
+package ru.mifi.practice.hotel.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import ru.mifi.practice.hotel.dto.RoomResponse;
+import ru.mifi.practice.hotel.model.Hotel;
+import ru.mifi.practice.hotel.model.Room;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:hotel-repository;DB_CLOSE_DELAY=-1;MODE=LEGACY"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class RoomRepositoryTest {
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @BeforeEach
+    void setUp() {
+        Hotel hotel = hotelRepository.findById(1L).orElseThrow();
+        int[] timesBooked = {4, 1, 4, 0, 2, 1};
+        for (int i = 0; i < timesBooked.length; i++) {
+            roomRepository.save(Room.builder()
+                    .hotel(hotel)
+                    .number("t" + i)
+                    .available(i % 2 == 0)
+                    .timesBooked(timesBooked[i])
+                    .build());
+        }
+    }
+
+    @Test
+    void statsPagesWalkEveryRoomInOrderWithoutGaps() {
+        List<Room> expected = roomRepository.findAll().stream()
+                .sorted((a, b) -> a.getTimesBooked() != b.getTimesBooked()
+                        ? Integer.compare(b.getTimesBooked(), a.getTimesBooked())
+                        : Long.compare(a.getId(), b.getId()))
+                .toList();
+
+        List<Room> walked = new ArrayList<>();
+        List<Room> page = roomRepository.findStatsAfter(Integer.MAX_VALUE, 0L, Limit.of(2));
+        while (!page.isEmpty()) {
+            walked.addAll(page);
+            Room last = page.get(page.size() - 1);
+            page = roomRepository.findStatsAfter(last.getTimesBooked(), last.getId(), Limit.of(2));
+        }
+
+        assertEquals(ids(expected), ids(walked));
+    }
+
+    @Test
+    void availablePagesContinueAfterCursor() {
+        List<RoomResponse> first = roomRepository.findAvailableViewsAfter(0L, Limit.of(2));
+        List<RoomResponse> second = roomRepository.findAvailableViewsAfter(first.get(1).id(), Limit.of(100));
+
+        List<Long> all = roomRepository.findAll().stream().filter(Room::isAvailable).map(Room::getId).sorted().toList();
+        List<Long> paged = new ArrayList<>(first.stream().map(RoomResponse::id).toList());
+        paged.addAll(second.stream().map(RoomResponse::id).toList());
+        assertEquals(all, paged);
+    }
+
+    private List<Long> ids(List<Room> rooms) {
+        return rooms.stream().map(Room::getId).toList();
+    }
+}
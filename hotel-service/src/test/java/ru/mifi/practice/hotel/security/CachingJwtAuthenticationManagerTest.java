@@ -0,0 +1,67 @@
+package ru.mifi.practice.hotel.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CachingJwtAuthenticationManagerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final JwtDecoder jwtDecoder = mock(JwtDecoder.class);
+    private final CachingJwtAuthenticationManager manager = new CachingJwtAuthenticationManager(
+            jwtDecoder, new SecurityConfig().jwtAuthenticationConverter(), meterRegistry, 100);
+
+    @Test
+    void decodesTokenOnceUntilExpiry() {
+        when(jwtDecoder.decode("token")).thenReturn(jwt("token", Instant.now().plusSeconds(60)));
+
+        Authentication first = manager.authenticate(new BearerTokenAuthenticationToken("token"));
+        Authentication second = manager.authenticate(new BearerTokenAuthenticationToken("token"));
+
+        verify(jwtDecoder, times(1)).decode("token");
+        assertNotSame(first, second);
+        assertEquals("alice", second.getName());
+        assertTrue(second.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_USER")));
+        assertEquals(0.5, meterRegistry.get("cache.hit.ratio").tag("cache", "jwt").gauge().value());
+    }
+
+    @Test
+    void entryIsEvictedAtTokenExpiry() throws InterruptedException {
+        when(jwtDecoder.decode("token")).thenReturn(jwt("token", Instant.now().plusMillis(300)));
+
+        manager.authenticate(new BearerTokenAuthenticationToken("token"));
+        manager.authenticate(new BearerTokenAuthenticationToken("token"));
+        verify(jwtDecoder, times(1)).decode("token");
+
+        Thread.sleep(400);
+        manager.authenticate(new BearerTokenAuthenticationToken("token"));
+        verify(jwtDecoder, times(2)).decode("token");
+    }
+
+    @Test
+    void tokensWithoutExpiryAreNotCached() {
+        when(jwtDecoder.decode("token")).thenReturn(jwt("token", null));
+
+        manager.authenticate(new BearerTokenAuthenticationToken("token"));
+        manager.authenticate(new BearerTokenAuthenticationToken("token"));
+
+        verify(jwtDecoder, times(2)).decode("token");
+    }
+
+    private static Jwt jwt(String value, Instant expiresAt) {
+        Jwt.Builder jwt = Jwt.withTokenValue(value)
+                .header("alg", "HS256")
+                .subject("alice")
+                .claim("roles", List.of("USER"));
+        return expiresAt != null ? jwt.expiresAt(expiresAt).build() : jwt.build();
+    }
+}
@@ -0,0 +1,105 @@
+package ru.mifi.practice.hotel.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import ru.mifi.practice.hotel.dto.AvailabilityRequest;
+import ru.mifi.practice.hotel.model.RoomReservation;
+import ru.mifi.practice.hotel.repository.RoomReservationRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+@SpringBootTest(properties = "eureka.client.enabled=false")
+class AvailabilityConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 150;
+    private static final List<Long> ROOMS = List.of(1L, 2L, 3L);
+
+    @Autowired
+    AvailabilityService availabilityService;
+
+    @Autowired
+    RoomReservationRepository reservationRepository;
+
+    @Test
+    void concurrentHoldsNeverDoubleBookARoom() throws Exception {
+        LocalDate base = LocalDate.now().plusYears(1);
+        AtomicInteger held = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        List<Throwable> failures = java.util.Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+
+        for (int t = 0; t < THREADS; t++) {
+            pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    Long roomId = ROOMS.get(random.nextInt(ROOMS.size()));
+                    LocalDate from = base.plusDays(random.nextInt(120));
+                    AvailabilityRequest request = new AvailabilityRequest(from, from.plusDays(random.nextInt(4)),
+                            "stress-" + UUID.randomUUID());
+                    try {
+                        availabilityService.confirmAvailability(roomId, request);
+                        held.incrementAndGet();
+                    } catch (ResponseStatusException ex) {
+                        if (ex.getStatusCode() == HttpStatus.CONFLICT) {
+                            conflicts.incrementAndGet();
+                        } else {
+                            failures.add(ex);
+                        }
+                    } catch (Exception ex) {
+                        failures.add(ex);
+                    }
+                }
+                return null;
+            });
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(2, TimeUnit.MINUTES));
+        double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+        int total = THREADS * ATTEMPTS_PER_THREAD;
+        log.info("Stress: {} attempts on {} threads in {}s ({} ops/s), held={}, conflicts={}",
+                total, THREADS, String.format("%.2f", seconds), String.format("%.0f", total / seconds),
+                held.get(), conflicts.get());
+
+        assertTrue(failures.isEmpty(), () -> "Unexpected failures: " + failures);
+        assertEquals(total, held.get() + conflicts.get());
+
+        Map<Long, List<RoomReservation>> byRoom = reservationRepository.findAll().stream()
+                .filter(r -> r.getRequestId().startsWith("stress-"))
+                .collect(Collectors.groupingBy(r -> r.getRoom().getId()));
+        assertEquals(held.get(), byRoom.values().stream().mapToInt(List::size).sum());
+        byRoom.forEach((roomId, reservations) -> {
+            reservations.sort(Comparator.comparing(RoomReservation::getStartDate));
+            for (int i = 1; i < reservations.size(); i++) {
+                RoomReservation previous = reservations.get(i - 1);
+                RoomReservation current = reservations.get(i);
+                assertTrue(current.getStartDate().isAfter(previous.getEndDate()),
+                        () -> "Room " + roomId + " double-booked: " + previous.getRequestId() + " and " + current.getRequestId());
+            }
+        });
+    }
+}
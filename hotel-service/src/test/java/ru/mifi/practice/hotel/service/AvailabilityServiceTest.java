@@ -5,11 +5,17 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.server.ResponseStatusException;
 import ru.mifi.practice.hotel.dto.AvailabilityRequest;
 import ru.mifi.practice.hotel.dto.AvailabilityResponse;
+import ru.mifi.practice.hotel.dto.BatchAvailabilityItem;
+import ru.mifi.practice.hotel.dto.BatchAvailabilityRequest;
+import ru.mifi.practice.hotel.dto.BatchAvailabilityResponse;
+import ru.mifi.practice.hotel.dto.ReservationSlot;
 import ru.mifi.practice.hotel.model.Hotel;
 import ru.mifi.practice.hotel.model.ReservationStatus;
 import ru.mifi.practice.hotel.model.Room;
@@ -17,8 +23,8 @@ import ru.mifi.practice.hotel.model.RoomReservation;
 import ru.mifi.practice.hotel.repository.RoomRepository;
 import ru.mifi.practice.hotel.repository.RoomReservationRepository;
 
+import java.time.Duration;
 import java.time.LocalDate;
-import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,6 +41,27 @@ class AvailabilityServiceTest {
     @Mock
     private RoomReservationRepository reservationRepository;
 
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private BookingCounter bookingCounter;
+
+    @Spy
+    private RoomLocks roomLocks = new RoomLocks(16);
+
+    @Spy
+    private ReservationIndex reservationIndex = new ReservationIndex();
+
+    @Spy
+    private RoomOccupancyCalendar occupancyCalendar = new RoomOccupancyCalendar(new ReservationIndex(), 730);
+
+    @Spy
+    private RoomRanking roomRanking = new RoomRanking();
+
+    @Spy
+    private HoldExpiryTracker holdExpiryTracker = new HoldExpiryTracker(Duration.ofMinutes(15), Duration.ofSeconds(1));
+
     @InjectMocks
     private AvailabilityService availabilityService;
 
@@ -68,14 +95,11 @@ class AvailabilityServiceTest {
     @Test
     void testConfirmAvailability_Success() {
         when(roomRepository.findById(1L)).thenReturn(Optional.of(testRoom));
-        when(reservationRepository.findByRequestId("test-request-id")).thenReturn(Optional.empty());
-        when(reservationRepository.findOverlaps(eq(1L), any(), any())).thenReturn(Collections.emptyList());
         when(reservationRepository.save(any(RoomReservation.class))).thenAnswer(invocation -> {
             RoomReservation r = invocation.getArgument(0);
             r.setId(1L);
             return r;
         });
-        when(roomRepository.save(any(Room.class))).thenReturn(testRoom);
 
         AvailabilityResponse response = availabilityService.confirmAvailability(1L, validRequest);
 
@@ -83,23 +107,16 @@ class AvailabilityServiceTest {
         assertTrue(response.available());
         assertEquals("test-request-id", response.requestId());
         verify(reservationRepository).save(any(RoomReservation.class));
-        verify(roomRepository).save(any(Room.class));
-        assertEquals(1, testRoom.getTimesBooked());
+        verify(roomRepository, never()).save(any(Room.class));
+        verify(bookingCounter).add(1L, 1L);
+        assertTrue(reservationIndex.isCommitted("test-request-id"));
+        assertEquals(1, holdExpiryTracker.pending());
     }
 
     @Test
     void testConfirmAvailability_Idempotency() {
-        RoomReservation existing = RoomReservation.builder()
-                .id(1L)
-                .room(testRoom)
-                .startDate(validRequest.startDate())
-                .endDate(validRequest.endDate())
-                .requestId("test-request-id")
-                .status(ReservationStatus.HELD)
-                .build();
-
-        when(roomRepository.findById(1L)).thenReturn(Optional.of(testRoom));
-        when(reservationRepository.findByRequestId("test-request-id")).thenReturn(Optional.of(existing));
+        reservationIndex.load(List.of(new ReservationSlot(1L, "test-request-id", validRequest.startDate(), validRequest.endDate())),
+                List.of("test-request-id"));
 
         AvailabilityResponse response = availabilityService.confirmAvailability(1L, validRequest);
 
@@ -107,21 +124,28 @@ class AvailabilityServiceTest {
         assertTrue(response.available());
         assertEquals("test-request-id", response.requestId());
         verify(reservationRepository, never()).save(any(RoomReservation.class));
+        verifyNoInteractions(roomRepository, reservationRepository);
+    }
+
+    @Test
+    void testConfirmAvailability_RetryOfUncommittedHoldIsRetryable() {
+        reservationIndex.add(new ReservationSlot(1L, "test-request-id", validRequest.startDate(), validRequest.endDate()));
+        when(roomRepository.findById(1L)).thenReturn(Optional.of(testRoom));
+        when(reservationRepository.findByRequestId("test-request-id")).thenReturn(Optional.empty());
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> availabilityService.confirmAvailability(1L, validRequest));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatusCode());
+        verify(reservationRepository, never()).save(any(RoomReservation.class));
     }
 
     @Test
     void testConfirmAvailability_OverlapConflict() {
-        RoomReservation overlap = RoomReservation.builder()
-                .id(1L)
-                .room(testRoom)
-                .startDate(LocalDate.now().plusDays(1))
-                .endDate(LocalDate.now().plusDays(2))
-                .status(ReservationStatus.HELD)
-                .build();
+        reservationIndex.add(new ReservationSlot(1L, "other-request-id",
+                LocalDate.now().plusDays(1), LocalDate.now().plusDays(2)));
 
         when(roomRepository.findById(1L)).thenReturn(Optional.of(testRoom));
-        when(reservationRepository.findByRequestId("test-request-id")).thenReturn(Optional.empty());
-        when(reservationRepository.findOverlaps(eq(1L), any(), any())).thenReturn(List.of(overlap));
 
         assertThrows(ResponseStatusException.class, () -> {
             availabilityService.confirmAvailability(1L, validRequest);
@@ -147,6 +171,7 @@ class AvailabilityServiceTest {
                 .requestId("test-request-id")
                 .status(ReservationStatus.HELD)
                 .build();
+        reservationIndex.add(new ReservationSlot(1L, "test-request-id", validRequest.startDate(), validRequest.endDate()));
 
         when(reservationRepository.findByRequestId("test-request-id")).thenReturn(Optional.of(reservation));
 
@@ -155,16 +180,28 @@ class AvailabilityServiceTest {
         assertNotNull(response);
         assertTrue(response.available());
         verify(reservationRepository).delete(reservation);
+        verify(reservationIndex).remove("test-request-id");
     }
 
     @Test
-    void testRelease_NotFound() {
-        when(reservationRepository.findByRequestId("non-existent")).thenReturn(Optional.empty());
+    void testRelease_UncommittedHoldIsRetryable() {
+        reservationIndex.add(new ReservationSlot(1L, "test-request-id", validRequest.startDate(), validRequest.endDate()));
+        when(reservationRepository.findByRequestId("test-request-id")).thenReturn(Optional.empty());
 
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> availabilityService.release("test-request-id"));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatusCode());
+        assertTrue(reservationIndex.find("test-request-id").isPresent());
+    }
+
+    @Test
+    void testRelease_NotFound() {
         AvailabilityResponse response = availabilityService.release("non-existent");
 
         assertNotNull(response);
         assertTrue(response.available());
+        verify(reservationRepository, never()).findByRequestId(any());
         verify(reservationRepository, never()).delete(any());
     }
 
@@ -177,10 +214,88 @@ class AvailabilityServiceTest {
         );
 
         when(roomRepository.findById(1L)).thenReturn(Optional.of(testRoom));
-        when(reservationRepository.findByRequestId("test-request-id")).thenReturn(Optional.empty());
 
         assertThrows(ResponseStatusException.class, () -> {
             availabilityService.confirmAvailability(1L, invalidRequest);
         });
     }
+
+    @Test
+    void testCommit_Success() {
+        holdExpiryTracker.track("test-request-id", holdExpiryTracker.nextDeadline());
+        when(reservationRepository.markConfirmed("test-request-id")).thenReturn(1);
+
+        AvailabilityResponse response = availabilityService.commit("test-request-id");
+
+        assertTrue(response.available());
+        assertEquals(0, holdExpiryTracker.pending());
+    }
+
+    @Test
+    void testCommit_ExpiredHold() {
+        when(reservationRepository.markConfirmed("test-request-id")).thenReturn(0);
+        when(reservationRepository.findByRequestId("test-request-id")).thenReturn(Optional.empty());
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> availabilityService.commit("test-request-id"));
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+    }
+
+    @Test
+    void testExpireHolds_DeletesAndFreesRoom() {
+        reservationIndex.add(new ReservationSlot(1L, "test-request-id", validRequest.startDate(), validRequest.endDate()));
+        RoomReservation held = RoomReservation.builder()
+                .id(7L)
+                .room(testRoom)
+                .requestId("test-request-id")
+                .status(ReservationStatus.HELD)
+                .build();
+        when(reservationRepository.findExpiredHolds(eq(List.of("test-request-id")), any())).thenReturn(List.of(held));
+
+        int expired = availabilityService.expireHolds(List.of("test-request-id"));
+
+        assertEquals(1, expired);
+        verify(reservationRepository).deleteAllByIdInBatch(List.of(7L));
+        assertFalse(reservationIndex.overlaps(1L, validRequest.startDate(), validRequest.endDate()));
+    }
+
+    @Test
+    void testConfirmBatch_PartialSuccess() {
+        LocalDate start = LocalDate.now().plusDays(1);
+        when(roomRepository.findExistingIds(any())).thenReturn(List.of(1L, 2L));
+        when(reservationRepository.findExistingRequestIds(any())).thenReturn(List.of());
+
+        BatchAvailabilityResponse response = availabilityService.confirmBatch(new BatchAvailabilityRequest(List.of(
+                new BatchAvailabilityItem(1L, start, start.plusDays(2), "g-1"),
+                new BatchAvailabilityItem(1L, start.plusDays(1), start.plusDays(3), "g-2"),
+                new BatchAvailabilityItem(2L, start, start.plusDays(2), "g-3"),
+                new BatchAvailabilityItem(9L, start, start.plusDays(2), "g-4")), false));
+
+        assertFalse(response.allAvailable());
+        assertEquals(List.of(true, false, true, false),
+                response.results().stream().map(r -> r.available()).toList());
+        assertTrue(reservationIndex.find("g-1").isPresent());
+        assertTrue(reservationIndex.find("g-2").isEmpty());
+        verify(jdbcTemplate).batchUpdate(anyString(), anyList(), anyInt(), any());
+        verify(bookingCounter).add(1L, 1L);
+        verify(bookingCounter).add(2L, 1L);
+    }
+
+    @Test
+    void testConfirmBatch_AtomicAbortsOnConflict() {
+        LocalDate start = LocalDate.now().plusDays(1);
+        reservationIndex.add(new ReservationSlot(2L, "other", start, start));
+        when(roomRepository.findExistingIds(any())).thenReturn(List.of(1L, 2L));
+        when(reservationRepository.findExistingRequestIds(any())).thenReturn(List.of());
+
+        BatchAvailabilityResponse response = availabilityService.confirmBatch(new BatchAvailabilityRequest(List.of(
+                new BatchAvailabilityItem(1L, start, start.plusDays(2), "g-1"),
+                new BatchAvailabilityItem(2L, start, start.plusDays(2), "g-2")), true));
+
+        assertFalse(response.allAvailable());
+        assertTrue(response.results().stream().noneMatch(r -> r.available()));
+        assertTrue(reservationIndex.find("g-1").isEmpty());
+        assertFalse(reservationIndex.overlaps(1L, start, start.plusDays(2)));
+        verifyNoInteractions(jdbcTemplate);
+    }
 }
@@ -0,0 +1,73 @@
+package ru.mifi.practice.hotel.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookingCounterTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final CatalogVersion catalogVersion = mock(CatalogVersion.class);
+    private final BookingCounter counter = new BookingCounter(jdbcTemplate,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), catalogVersion);
+
+    @Test
+    void liveCountMergesPendingDelta() {
+        counter.add(1L, 1);
+        counter.add(1L, 2);
+
+        assertEquals(8, counter.liveCount(1L, 5));
+        assertEquals(5, counter.liveCount(2L, 5));
+    }
+
+    @Test
+    void flushDrainsPendingDeltas() {
+        counter.add(1L, 3);
+
+        counter.flush();
+        counter.flush();
+
+        assertEquals(5, counter.liveCount(1L, 5));
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList(), anyInt(), any());
+        verify(catalogVersion, times(1)).bump();
+    }
+
+    @Test
+    void failedFlushKeepsDeltas() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), anyInt(), any()))
+                .thenThrow(new IllegalStateException("db down"));
+        counter.add(1L, 3);
+
+        counter.flush();
+
+        assertEquals(3, counter.liveCount(1L, 0));
+    }
+
+    @Test
+    void deltaInFlightIsCountedOnceAndHoldsDuringTheUpdateAreKept() {
+        int[] duringUpdate = new int[1];
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), anyInt(), any())).thenAnswer(invocation -> {
+            duringUpdate[0] = counter.liveCount(1L, 5);
+            counter.add(1L, 2);
+            return new int[][]{{1}};
+        });
+        counter.add(1L, 3);
+
+        counter.flush();
+
+        assertEquals(8, duringUpdate[0]);
+        // the row now holds 5 + 3; the hold taken during the update waits for the next flush
+        assertEquals(10, counter.liveCount(1L, 8));
+    }
+}
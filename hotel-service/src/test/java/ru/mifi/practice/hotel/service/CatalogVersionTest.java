@@ -0,0 +1,113 @@
+package ru.mifi.practice.hotel.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mifi.practice.hotel.dto.HotelRequest;
+import ru.mifi.practice.hotel.dto.RoomRequest;
+import ru.mifi.practice.hotel.model.Hotel;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The gateway caches catalog lists under X-Catalog-Version, so the header must not move before the
+// change is visible to readers, must not move at all for a change that is rolled back, and must be
+// the same sequence on every instance.
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:hotel-catalog-version;DB_CLOSE_DELAY=-1;MODE=LEGACY"
+})
+@AutoConfigureMockMvc
+class CatalogVersionTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private HotelCrudService hotelCrudService;
+
+    @Autowired
+    private RoomCrudService roomCrudService;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private BookingCounter bookingCounter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void versionIsRaisedOnlyAfterCommit() throws Exception {
+        long before = headerVersion();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Hotel hotel = hotelCrudService.create(new HotelRequest("Committed", "Street 1"));
+            roomCrudService.create(new RoomRequest(hotel.getId(), "101", true));
+            assertEquals(before, catalogVersion.current());
+        });
+
+        assertTrue(headerVersion() > before);
+    }
+
+    @Test
+    void rolledBackChangeKeepsVersionAndIndexes() throws Exception {
+        long before = headerVersion();
+        LocalDate day = LocalDate.now().plusDays(1);
+
+        Long hotelId = new TransactionTemplate(transactionManager).execute(status -> {
+            Hotel hotel = hotelCrudService.create(new HotelRequest("Rolled back", "Street 2"));
+            roomCrudService.create(new RoomRequest(hotel.getId(), "201", true));
+            status.setRollbackOnly();
+            return hotel.getId();
+        });
+
+        assertEquals(before, headerVersion());
+        assertTrue(roomCrudService.findFree(day, day, hotelId, null, 50).isEmpty());
+        assertTrue(roomCrudService.recommended(null, null, 50, hotelId).isEmpty());
+    }
+
+    @Test
+    void flushedBookingCountsRaiseVersion() throws Exception {
+        long before = headerVersion();
+
+        bookingCounter.add(1L, 1);
+        bookingCounter.flush();
+
+        assertTrue(headerVersion() > before);
+    }
+
+    @Test
+    void bumpOnAnotherInstanceIsSeenAfterRefresh() {
+        CatalogVersion otherInstance = new CatalogVersion(jdbcTemplate);
+        assertEquals(catalogVersion.current(), otherInstance.current());
+
+        otherInstance.bump();
+        catalogVersion.refresh();
+
+        assertEquals(otherInstance.current(), catalogVersion.current());
+    }
+
+    private long headerVersion() throws Exception {
+        String header = mockMvc.perform(get("/api/hotels").with(jwt().authorities(() -> "ROLE_USER")))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(CatalogVersion.HEADER);
+        return Long.parseLong(header);
+    }
+}
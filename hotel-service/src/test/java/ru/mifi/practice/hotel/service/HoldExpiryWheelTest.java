@@ -0,0 +1,67 @@
+package ru.mifi.practice.hotel.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HoldExpiryWheelTest {
+
+    private static final long TICK = 1_000;
+
+    @Test
+    void expiresEntriesOnTheirTickAcrossLevels() {
+        HoldExpiryWheel wheel = new HoldExpiryWheel(TICK, 0);
+        wheel.schedule("short", 5 * TICK);
+        wheel.schedule("minutes", 900 * TICK);
+        wheel.schedule("hours", 20_000 * TICK);
+
+        assertTrue(wheel.advance(4 * TICK).isEmpty());
+        assertEquals(List.of("short"), wheel.advance(5 * TICK));
+        assertTrue(wheel.advance(899 * TICK).isEmpty());
+        assertEquals(List.of("minutes"), wheel.advance(900 * TICK));
+        assertTrue(wheel.advance(19_999 * TICK).isEmpty());
+        assertEquals(List.of("hours"), wheel.advance(20_000 * TICK));
+        assertEquals(0, wheel.pending());
+    }
+
+    @Test
+    void cancelledAndRescheduledEntriesFireOnlyOnce() {
+        HoldExpiryWheel wheel = new HoldExpiryWheel(TICK, 0);
+        wheel.schedule("cancelled", 10 * TICK);
+        wheel.schedule("moved", 10 * TICK);
+        wheel.cancel("cancelled");
+        wheel.schedule("moved", 100 * TICK);
+
+        assertTrue(wheel.advance(10 * TICK).isEmpty());
+        assertEquals(List.of("moved"), wheel.advance(100 * TICK));
+    }
+
+    @Test
+    void pastDeadlinesAreReturnedOnNextAdvance() {
+        HoldExpiryWheel wheel = new HoldExpiryWheel(TICK, 50 * TICK);
+        wheel.schedule("late", 10 * TICK);
+
+        assertEquals(List.of("late"), wheel.advance(50 * TICK));
+    }
+
+    @Test
+    void everyScheduledEntryExpiresExactlyOnce() {
+        HoldExpiryWheel wheel = new HoldExpiryWheel(TICK, 0);
+        for (int i = 1; i <= 5_000; i++) {
+            wheel.schedule("hold-" + i, (i * 37L % 300_000) * TICK + 1);
+        }
+        List<String> expired = new ArrayList<>();
+        for (long now = 0; now <= 300_001 * TICK; now += 7_919 * TICK) {
+            expired.addAll(wheel.advance(now));
+        }
+        expired.addAll(wheel.advance(300_001 * TICK));
+
+        assertEquals(5_000, expired.size());
+        assertEquals(5_000, expired.stream().distinct().count());
+        assertEquals(0, wheel.pending());
+    }
+}
@@ -0,0 +1,72 @@
+package ru.mifi.practice.hotel.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.mifi.practice.hotel.dto.HotelRequest;
+import ru.mifi.practice.hotel.dto.HotelResponse;
+import ru.mifi.practice.hotel.dto.RoomRequest;
+import ru.mifi.practice.hotel.model.Hotel;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:hotel-listing;DB_CLOSE_DELAY=-1;MODE=LEGACY",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class ListingStatementCountTest {
+
+    @Autowired
+    private HotelCrudService hotelCrudService;
+
+    @Autowired
+    private RoomCrudService roomCrudService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (hotelCrudService.findPage(null, 500).size() < 6) {
+            for (int h = 0; h < 5; h++) {
+                Hotel hotel = hotelCrudService.create(new HotelRequest("Hotel " + h, "Street " + h));
+                for (int r = 0; r < 4; r++) {
+                    roomCrudService.create(new RoomRequest(hotel.getId(), h + "0" + r, true));
+                }
+            }
+        }
+        statistics.clear();
+    }
+
+    @Test
+    void hotelPageCostsTwoStatementsRegardlessOfHotelCount() {
+        List<HotelResponse> hotels = hotelCrudService.findPage(null, 50);
+
+        assertEquals(6, hotels.size());
+        assertTrue(hotels.stream().allMatch(hotel -> !hotel.rooms().isEmpty()));
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void roomListingsCostOneStatement() {
+        assertEquals(23, roomCrudService.findAvailablePage(null, 50).size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        LocalDate start = LocalDate.now().plusDays(10);
+        assertEquals(23, roomCrudService.findFree(start, start.plusDays(2), null, null, 50).size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
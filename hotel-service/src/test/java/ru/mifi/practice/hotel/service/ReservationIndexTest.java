@@ -0,0 +1,86 @@
+package ru.mifi.practice.hotel.service;
+
+import org.junit.jupiter.api.Test;
+import ru.mifi.practice.hotel.dto.ReservationSlot;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReservationIndexTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 1, 10);
+
+    @Test
+    void detectsOverlapsAtRangeBoundaries() {
+        ReservationIndex index = new ReservationIndex();
+        index.add(new ReservationSlot(1L, "r1", DAY, DAY.plusDays(3)));
+
+        assertTrue(index.overlaps(1L, DAY.minusDays(2), DAY));
+        assertTrue(index.overlaps(1L, DAY.plusDays(3), DAY.plusDays(5)));
+        assertTrue(index.overlaps(1L, DAY.plusDays(1), DAY.plusDays(2)));
+        assertTrue(index.overlaps(1L, DAY.minusDays(5), DAY.plusDays(10)));
+        assertFalse(index.overlaps(1L, DAY.minusDays(5), DAY.minusDays(1)));
+        assertFalse(index.overlaps(1L, DAY.plusDays(4), DAY.plusDays(6)));
+        assertFalse(index.overlaps(2L, DAY, DAY.plusDays(3)));
+    }
+
+    @Test
+    void removeFreesRangeAndLoadReplacesContent() {
+        ReservationIndex index = new ReservationIndex();
+        index.add(new ReservationSlot(1L, "r1", DAY, DAY.plusDays(3)));
+        index.add(new ReservationSlot(1L, "r2", DAY.plusDays(5), DAY.plusDays(6)));
+
+        assertTrue(index.remove("r1").isPresent());
+        assertFalse(index.overlaps(1L, DAY, DAY.plusDays(3)));
+        assertTrue(index.overlaps(1L, DAY.plusDays(6), DAY.plusDays(8)));
+        assertTrue(index.remove("r1").isEmpty());
+
+        index.load(List.of(new ReservationSlot(3L, "r3", DAY, DAY)), List.of());
+        assertEquals(1, index.size());
+        assertFalse(index.overlaps(1L, DAY.plusDays(5), DAY.plusDays(6)));
+        assertTrue(index.overlaps(3L, DAY, DAY));
+    }
+
+    @Test
+    void requestCountsAsExistingOnlyOnceCommitted() {
+        ReservationIndex index = new ReservationIndex();
+        index.add(new ReservationSlot(1L, "r1", DAY, DAY));
+        assertFalse(index.isCommitted("r1"));
+
+        index.committed("r1");
+        assertTrue(index.isCommitted("r1"));
+
+        index.remove("r1");
+        index.committed("r1");
+        assertFalse(index.isCommitted("r1"));
+
+        index.load(List.of(new ReservationSlot(1L, "r2", DAY, DAY), new ReservationSlot(1L, "held", DAY.plusDays(1), DAY.plusDays(1))),
+                List.of("r2", "gone"));
+        assertTrue(index.isCommitted("r2"));
+        assertFalse(index.isCommitted("held"));
+        assertFalse(index.isCommitted("gone"));
+    }
+
+    @Test
+    void overlappingLoadedSlotsAllBlockUntilEachIsRemoved() {
+        ReservationIndex index = new ReservationIndex();
+        index.load(List.of(
+                new ReservationSlot(1L, "short", DAY, DAY),
+                new ReservationSlot(1L, "same-start", DAY, DAY.plusDays(10)),
+                new ReservationSlot(1L, "inside", DAY.plusDays(4), DAY.plusDays(5))), List.of());
+
+        assertEquals(3, index.size());
+        assertEquals(3, index.slots(1L).size());
+        assertTrue(index.overlaps(1L, DAY.plusDays(8), DAY.plusDays(9)));
+
+        index.remove("same-start");
+        assertFalse(index.overlaps(1L, DAY.plusDays(8), DAY.plusDays(9)));
+        assertTrue(index.overlaps(1L, DAY.plusDays(5), DAY.plusDays(6)));
+        assertTrue(index.overlaps(1L, DAY, DAY));
+
+        index.remove("inside");
+        assertFalse(index.overlaps(1L, DAY.plusDays(1), DAY.plusDays(9)));
+    }
+}
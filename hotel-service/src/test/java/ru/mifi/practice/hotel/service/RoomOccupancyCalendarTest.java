@@ -0,0 +1,118 @@
+package ru.mifi.practice.hotel.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+import ru.mifi.practice.hotel.dto.ReservationSlot;
+import ru.mifi.practice.hotel.dto.RoomResponse;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoomOccupancyCalendarTest {
+
+    private final LocalDate today = LocalDate.of(2026, 3, 1);
+    private final MutableClock clock = new MutableClock(today);
+    private final ReservationIndex index = new ReservationIndex();
+    private RoomOccupancyCalendar calendar;
+
+    @BeforeEach
+    void setUp() {
+        calendar = new RoomOccupancyCalendar(index, 365, clock);
+        calendar.load(List.of(
+                new RoomResponse(1L, 10L, "101", true, 0),
+                new RoomResponse(2L, 10L, "102", true, 0),
+                new RoomResponse(3L, 20L, "201", true, 0),
+                new RoomResponse(4L, 20L, "202", false, 0)));
+    }
+
+    @Test
+    void returnsRoomsWithoutOccupiedDaysInRange() {
+        calendar.occupy(new ReservationSlot(1L, "r1", today.plusDays(60), today.plusDays(70)));
+
+        assertEquals(List.of(2L, 3L), calendar.findFree(today.plusDays(70), today.plusDays(80), null, 0L, 50));
+        assertEquals(List.of(1L, 2L, 3L), calendar.findFree(today.plusDays(71), today.plusDays(200), null, 0L, 50));
+        assertEquals(List.of(1L, 2L, 3L), calendar.findFree(today.plusDays(10), today.plusDays(59), null, 0L, 50));
+        assertEquals(List.of(2L), calendar.findFree(today.plusDays(50), today.plusDays(65), 10L, 0L, 50));
+    }
+
+    @Test
+    void freeingSlotMakesRoomAvailableAgain() {
+        ReservationSlot slot = new ReservationSlot(3L, "r1", today.plusDays(1), today.plusDays(130));
+        calendar.occupy(slot);
+        assertEquals(List.of(), calendar.findFree(today.plusDays(128), today.plusDays(128), 20L, 0L, 50));
+
+        calendar.free(slot);
+        assertEquals(List.of(3L), calendar.findFree(today.plusDays(128), today.plusDays(128), 20L, 0L, 50));
+    }
+
+    @Test
+    void rejectsRangesOutsideHorizon() {
+        assertThrows(ResponseStatusException.class, () -> calendar.findFree(today, today.plusDays(365), null, 0L, 50));
+        assertThrows(ResponseStatusException.class, () -> calendar.findFree(today.plusDays(3), today.plusDays(1), null, 0L, 50));
+        assertEquals(List.of(1L, 2L, 3L), calendar.findFree(today.minusDays(3), today.plusDays(364), null, 0L, 50));
+    }
+
+    @Test
+    void pagesFollowTheIdCursor() {
+        assertEquals(List.of(1L, 2L), calendar.findFree(today, today.plusDays(7), null, 0L, 2));
+        assertEquals(List.of(3L), calendar.findFree(today, today.plusDays(7), null, 2L, 2));
+    }
+
+    @Test
+    void windowMovesWithTheDate() {
+        ReservationSlot first = new ReservationSlot(1L, "r1", today, today.plusDays(4));
+        ReservationSlot later = new ReservationSlot(2L, "r2", today.plusDays(500), today.plusDays(502));
+        index.add(first);
+        index.add(later);
+        calendar.occupy(first);
+        calendar.occupy(later);
+
+        clock.set(today.plusDays(1));
+        calendar.roll();
+        // the new last day reuses the bit of the day that passed
+        assertEquals(List.of(1L, 2L, 3L), calendar.findFree(today.plusDays(365), today.plusDays(365), null, 0L, 50));
+        assertEquals(List.of(2L, 3L), calendar.findFree(today.plusDays(1), today.plusDays(2), null, 0L, 50));
+
+        clock.set(today.plusDays(400));
+        calendar.roll();
+        assertThrows(ResponseStatusException.class, () -> calendar.findFree(today, today.plusDays(4), null, 0L, 50));
+        assertEquals(List.of(1L, 2L, 3L), calendar.findFree(today.plusDays(730), today.plusDays(734), null, 0L, 50));
+        // entered the window with the roll, so it is marked from the reservation index
+        assertEquals(List.of(1L, 3L), calendar.findFree(today.plusDays(501), today.plusDays(501), null, 0L, 50));
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(LocalDate date) {
+            set(date);
+        }
+
+        void set(LocalDate date) {
+            now = date.atStartOfDay(ZoneOffset.UTC).toInstant();
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package ru.mifi.practice.hotel.service;
+
+import org.junit.jupiter.api.Test;
+import ru.mifi.practice.hotel.dto.RoomResponse;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RoomRankingTest {
+
+    private final RoomRanking ranking = new RoomRanking();
+
+    @Test
+    void topOrdersByTimesBookedThenIdAndSkipsUnavailable() {
+        ranking.load(List.of(
+                new RoomResponse(1L, 1L, "101", true, 5),
+                new RoomResponse(2L, 1L, "102", true, 2),
+                new RoomResponse(3L, 2L, "201", true, 2),
+                new RoomResponse(4L, 2L, "202", false, 0)));
+
+        assertEquals(List.of(2L, 3L), ids(ranking.top(null, null, 2, null)));
+        assertEquals(List.of(3L), ids(ranking.top(null, null, 10, 2L)));
+        assertEquals(List.of(), ranking.top(null, null, 10, 9L));
+    }
+
+    @Test
+    void bookingMovesRoomDownTheRanking() {
+        ranking.load(List.of(
+                new RoomResponse(1L, 1L, "101", true, 0),
+                new RoomResponse(2L, 1L, "102", true, 1)));
+
+        ranking.booked(1L, 2);
+
+        assertEquals(List.of(2L, 1L), ids(ranking.top(null, null, 10, 1L)));
+        assertEquals(2, ranking.top(null, null, 10, null).get(1).timesBooked());
+    }
+
+    @Test
+    void cursorContinuesAfterGivenRoom() {
+        ranking.load(List.of(
+                new RoomResponse(1L, 1L, "101", true, 3),
+                new RoomResponse(2L, 1L, "102", true, 1),
+                new RoomResponse(3L, 1L, "103", true, 1),
+                new RoomResponse(4L, 1L, "104", true, 2)));
+
+        assertEquals(List.of(2L, 3L), ids(ranking.top(null, null, 2, null)));
+        assertEquals(List.of(4L, 1L), ids(ranking.top(1, 3L, 2, null)));
+        assertEquals(List.of(), ranking.top(3, 1L, 2, null));
+    }
+
+    @Test
+    void roomBookedBetweenPagesIsNeitherSkippedNorRepeated() {
+        ranking.load(List.of(
+                new RoomResponse(1L, 1L, "101", true, 0),
+                new RoomResponse(2L, 1L, "102", true, 0),
+                new RoomResponse(3L, 1L, "103", true, 0),
+                new RoomResponse(4L, 1L, "104", true, 0)));
+        List<RoomResponse> first = ranking.top(null, null, 2, null);
+        assertEquals(List.of(1L, 2L), ids(first));
+
+        // the last row of the page moves behind the rooms that are still to come
+        ranking.booked(2L, 5);
+        RoomResponse last = first.get(first.size() - 1);
+
+        assertEquals(List.of(3L, 4L), ids(ranking.top(last.timesBooked(), last.id(), 2, null)));
+    }
+
+    private List<Long> ids(List<RoomResponse> rooms) {
+        return rooms.stream().map(RoomResponse::id).toList();
+    }
+}